@@ -0,0 +1,37 @@
+package forcomp;
+
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnagramsBenchmark {
+    @Param({"Linux rulez", "Yes man"})
+    public String sentence;
+
+    private Seq<String> words;
+
+    @Setup
+    public void setup() {
+        words = List.of(sentence.split(" "));
+        // loads the dictionary outside of the measurement
+        Anagrams.dictionaryByOccurrences.size();
+    }
+
+    @Benchmark
+    public Seq<String> wordAnagrams() {
+        return Anagrams.wordAnagrams(words.head());
+    }
+
+    @Benchmark
+    public Seq<Seq<String>> sentenceAnagrams() {
+        return Anagrams.sentenceAnagrams(words);
+    }
+}
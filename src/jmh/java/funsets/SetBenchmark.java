@@ -0,0 +1,42 @@
+package funsets;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SetBenchmark {
+    /** The number of nested unions below the sets. */
+    @Param({"10"})
+    public int depth;
+
+    private Set union;
+    private Set mapped;
+
+    @Setup
+    public void setup() {
+        union = Set.singletonSet(0);
+        for (int i = 1; i < depth; i++) union = union.union(Set.singletonSet(i * 7));
+        mapped = union.map(x -> x * 2);
+    }
+
+    @Benchmark
+    public Boolean forall() {
+        return union.forall(x -> x >= 0);
+    }
+
+    @Benchmark
+    public Boolean map() {
+        return mapped.contains(14);
+    }
+
+    @Benchmark
+    public String asString() {
+        return mapped.asString();
+    }
+}
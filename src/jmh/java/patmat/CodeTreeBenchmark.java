@@ -0,0 +1,83 @@
+package patmat;
+
+import forcomp.Dictionary;
+import io.vavr.collection.CharSeq;
+import io.vavr.collection.Seq;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodeTreeBenchmark {
+    /** The number of characters of the text, taken from the words of the dictionary. */
+    @Param({"10000"})
+    public int length;
+
+    private CharSeq text;
+    private CodeTree tree;
+    private FlatCodeTree flatTree;
+    private Seq<Integer> bits;
+
+    @Setup
+    public void setup() {
+        text = CharSeq.of(Dictionary.load().mkString(" ").substring(0, length));
+        tree = CodeTree.createCodeTree(text);
+        flatTree = FlatCodeTree.of(tree);
+        bits = tree.quickEncode().apply(text);
+    }
+
+    @Benchmark
+    public CodeTree createCodeTree() {
+        return CodeTree.createCodeTree(text);
+    }
+
+    @Benchmark
+    public Seq<Integer> encode() {
+        return tree.encode().apply(text);
+    }
+
+    @Benchmark
+    public Seq<Integer> quickEncode() {
+        return tree.quickEncode().apply(text);
+    }
+
+    @Benchmark
+    public Seq<Integer> parallelEncode(Parallelism parallelism) {
+        return ParallelCodec.encode(tree, text, length / 8, parallelism.pool);
+    }
+
+    @Benchmark
+    public Seq<Character> decode() {
+        return tree.decode(bits);
+    }
+
+    @Benchmark
+    public Seq<Character> flatDecode() {
+        return flatTree.decode(bits);
+    }
+
+    /** The pool for the parallel benchmarks, which split their input into 8 chunks. */
+    @State(Scope.Benchmark)
+    public static class Parallelism {
+        @Param({"1", "2", "4"})
+        public int threads;
+
+        ForkJoinPool pool;
+
+        @Setup
+        public void setup() {
+            pool = new ForkJoinPool(threads);
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+}
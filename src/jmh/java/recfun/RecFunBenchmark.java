@@ -0,0 +1,102 @@
+package recfun;
+
+import io.vavr.collection.CharSeq;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecFunBenchmark {
+    private final Seq<Integer> coins = List.of(5, 10, 20, 50, 100, 200, 500);
+    private final CharSeq expression = CharSeq.of("(if (zero? x) max (/ 1 x))").repeat(400);
+
+    private Binomial binomial;
+    private int row;
+
+    @Setup
+    public void setup() {
+        binomial = new Binomial(64);
+    }
+
+    @Benchmark
+    public Integer pascal() {
+        return RecFun.pascal(10, 20);
+    }
+
+    @Benchmark
+    public long binomial() {
+        return binomial.choose(20, 10);
+    }
+
+    /** Beyond the precomputed rows, computed in longs. */
+    @Benchmark
+    public long binomialLong() {
+        return binomial.choose(1000, 6);
+    }
+
+    /** A row that is still in the cache. */
+    @Benchmark
+    public BigInteger binomialCached() {
+        return binomial.chooseExact(1000, 500);
+    }
+
+    /** Cycles through more rows than the cache holds, so that every row is computed. */
+    @Benchmark
+    public BigInteger binomialUncached() {
+        int n = 1000 + row++ % 256;
+        return binomial.chooseExact(n, n / 2);
+    }
+
+    @Benchmark
+    public Seq<BigInteger> binomialRows() {
+        return binomial.rows(100).take(50).last();
+    }
+
+    @Benchmark
+    public Integer countChange() {
+        return RecFun.countChange(300, coins);
+    }
+
+    @Benchmark
+    public long changeCounter() {
+        return new ChangeCounter(coins).count(300);
+    }
+
+    @Benchmark
+    public Boolean balance() {
+        return RecFun.balance(expression);
+    }
+
+    @Benchmark
+    public boolean parallelBalance(Parallelism parallelism) {
+        return Balance.balance(expression, expression.length() / 8, parallelism.pool);
+    }
+
+    /** The pool for the parallel benchmarks, which split their input into 8 chunks. */
+    @State(Scope.Benchmark)
+    public static class Parallelism {
+        @Param({"1", "2", "4"})
+        public int threads;
+
+        ForkJoinPool pool;
+
+        @Setup
+        public void setup() {
+            pool = new ForkJoinPool(threads);
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+}
@@ -4,6 +4,8 @@ import io.vavr.Lazy;
 import io.vavr.Tuple;
 import io.vavr.Tuple2;
 import io.vavr.collection.*;
+import metrics.Instrumentation;
+import metrics.Metrics;
 
 import static io.vavr.API.*;
 import static io.vavr.Patterns.$None;
@@ -45,9 +47,26 @@ public class Anagrams {
         return charSeq.toLowerCase().groupBy(x -> x).map(x -> Tuple.of(x._1, x._2.size())).sortBy(x -> x._1);
     }
 
-    /** Converts a sentence into its character occurrence list. */
+    /**
+     * The occurrence list of every dictionary word, computed once. Words with the same
+     * occurrences share a single occurrence list instance.
+     */
+    private static Lazy<Map<String, Seq<Tuple2<Character, Integer>>>> signatures = Lazy.of(() -> {
+        java.util.Map<Seq<Tuple2<Character, Integer>>, Seq<Tuple2<Character, Integer>>> interned = new java.util.HashMap<>();
+        return dictionary.toMap(x -> Tuple.of(x, interned.computeIfAbsent(wordOccurrences(x), y -> y)));
+    });
+
+    /** Returns the occurrence list of a word, looking it up if the word is in the dictionary. */
+    static Seq<Tuple2<Character, Integer>> signature(String word) {
+        return signatures.get().get(word).getOrElse(() -> wordOccurrences(word));
+    }
+
+    /** Converts a sentence into its character occurrence list, merging the occurrences of its words. */
     public static Seq<Tuple2<Character, Integer>> sentenceOccurrences(Seq<String> sentence) {
-        return charSeqOccurrences(sentence.mkCharSeq());
+        return sentence.flatMap(Anagrams::signature)
+                .groupBy(x -> x._1)
+                .map(x -> Tuple.of(x._1, x._2.map(y -> y._2).sum().intValue()))
+                .sortBy(x -> x._1);
     }
 
     /**
@@ -67,7 +86,7 @@ public class Anagrams {
      *
      */
     public static Map<Seq<Tuple2<Character, Integer>>, Seq<String>> dictionaryByOccurrences = Lazy.val(
-            () -> dictionary.groupBy(x -> wordOccurrences(x)), Map.class
+            () -> dictionary.groupBy(x -> signature(x)), Map.class
     );
 
     /** Returns all the anagrams of a given word. */
@@ -99,13 +118,14 @@ public class Anagrams {
      *  in the example above could have been displayed in some other order.
      */
     public static Seq<Seq<Tuple2<Character, Integer>>> combinations(Seq<Tuple2<Character, Integer>> occurrences) {
-        if (occurrences.isEmpty()) return List.of(List.empty());
-        return combinations(occurrences.tail()).appendAll(
-                For(combinations(occurrences.tail()), subset ->
-                        For(List.rangeClosed(1, occurrences.head()._2))
-                                .yield(x -> subset.prepend(Tuple.of(occurrences.head()._1, x)))
+        // folds from the last occurrence on, which computes the subsets of every tail only once
+        // and does not recurse
+        return occurrences.foldRight(List.of(List.empty()), (occurrence, subsets) -> subsets.appendAll(
+                For(subsets, subset ->
+                        For(List.rangeClosed(1, occurrence._2))
+                                .yield(x -> subset.prepend(Tuple.of(occurrence._1, x)))
                 )
-        );
+        ));
     }
 
     /**
@@ -169,18 +189,36 @@ public class Anagrams {
      *  so it has to be returned in this list.
      *
      *  Note: There is only one anagram of an empty sentence.
+     *
+     *  The anagrams of every remaining occurrence list are computed only once per call, and all
+     *  sentences ending in them share these anagrams as their tails instead of copies.
      */
     public static Seq<Seq<String>> sentenceAnagrams(Seq<String> sentence) {
-        return anagramsRec(sentenceOccurrences(sentence)).toList();
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        Seq<Seq<String>> anagrams = List.narrow(anagramsRec(sentenceOccurrences(sentence), new java.util.HashMap<>(), metrics));
+        if (metrics.enabled()) metrics.sentenceAnagrams(anagrams.size(), System.nanoTime() - start);
+        return anagrams;
     }
 
-    private static Iterator<Seq<String>> anagramsRec(Seq<Tuple2<Character, Integer>> occurrences) {
-        if (occurrences.isEmpty()) return Iterator.of(List.empty());
-        return For(combinations(occurrences), subset ->
-                For(dictionaryByOccurrences.getOrElse(subset, List.empty()), anagram ->
-                    For(anagramsRec(subtract(occurrences, subset)))
-                            .yield(next -> next.prepend(anagram))
-                )
-        );
+    private static List<List<String>> anagramsRec(Seq<Tuple2<Character, Integer>> occurrences,
+                                                  java.util.Map<Seq<Tuple2<Character, Integer>>, List<List<String>>> known,
+                                                  Metrics metrics) {
+        List<List<String>> anagrams = known.get(occurrences);
+        if (anagrams != null) return anagrams;
+        metrics.anagramNodeVisited();
+        if (occurrences.isEmpty()) {
+            anagrams = List.of(List.empty());
+        } else {
+            anagrams = For(combinations(occurrences), subset -> {
+                Seq<String> words = dictionaryByOccurrences.getOrElse(subset, List.empty());
+                metrics.anagramSubsetTried(!words.isEmpty());
+                if (words.isEmpty()) return List.<List<String>>empty();
+                List<List<String>> tails = anagramsRec(subtract(occurrences, subset), known, metrics);
+                return For(words, anagram -> tails.map(next -> next.prepend(anagram)));
+            }).toList();
+        }
+        known.put(occurrences, anagrams);
+        return anagrams;
     }
 }
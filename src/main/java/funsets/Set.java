@@ -2,6 +2,7 @@ package funsets;
 
 import io.vavr.Function1;
 import io.vavr.collection.Stream;
+import metrics.Instrumentation;
 
 import java.util.function.Predicate;
 
@@ -70,12 +71,17 @@ interface Set extends Function1<Integer, Boolean> {
     }
 
     /**
-     * Helper function for `forall`
+     * Helper function for `forall`, a loop over `a` to `bound` rather than one recursive
+     * call per integer.
      */
     default Boolean iter(Integer a, Predicate<Integer> p) {
-        if (a > bound) return true;
-        else if (this.contains(a)) return p.test(a) && iter(a + 1, p);
-        else return iter(a + 1, p);
+        int x = a;
+        boolean all = true;
+        for (; x <= bound && all; x++) {
+            all = !this.contains(x) || p.test(x);
+        }
+        Instrumentation.metrics().setQuantified(x - a);
+        return all;
     }
 
     /**
@@ -0,0 +1,143 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds up all measurements in memory, for tests, benchmarks and local diagnostics.
+ */
+public class InMemoryMetrics implements Metrics {
+    private final LongAdder anagramNodes = new LongAdder();
+    private final LongAdder anagramSubsets = new LongAdder();
+    private final LongAdder anagramHits = new LongAdder();
+    private final LongAdder sentenceAnagramsCalls = new LongAdder();
+    private final LongAdder sentenceAnagramsResults = new LongAdder();
+    private final LongAdder sentenceAnagramsNanos = new LongAdder();
+    private final LongAdder encodedSymbols = new LongAdder();
+    private final LongAdder encodedBits = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder decodedSymbols = new LongAdder();
+    private final LongAdder decodedBits = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+    private final LongAdder treeBuilds = new LongAdder();
+    private final LongAdder treeBuildNanos = new LongAdder();
+    private final LongAdder setQuantifications = new LongAdder();
+    private final LongAdder setEvaluations = new LongAdder();
+
+    public boolean enabled() {
+        return true;
+    }
+
+    public void anagramNodeVisited() {
+        anagramNodes.increment();
+    }
+
+    public void anagramSubsetTried(boolean dictionaryHit) {
+        anagramSubsets.increment();
+        if (dictionaryHit) anagramHits.increment();
+    }
+
+    public void sentenceAnagrams(long sentences, long nanos) {
+        sentenceAnagramsCalls.increment();
+        sentenceAnagramsResults.add(sentences);
+        sentenceAnagramsNanos.add(nanos);
+    }
+
+    public void huffmanEncoded(long symbols, long bits, long nanos) {
+        encodedSymbols.add(symbols);
+        encodedBits.add(bits);
+        encodeNanos.add(nanos);
+    }
+
+    public void huffmanDecoded(long symbols, long bits, long nanos) {
+        decodedSymbols.add(symbols);
+        decodedBits.add(bits);
+        decodeNanos.add(nanos);
+    }
+
+    public void codeTreeBuilt(long nanos) {
+        treeBuilds.increment();
+        treeBuildNanos.add(nanos);
+    }
+
+    public void setQuantified(long evaluations) {
+        setQuantifications.increment();
+        setEvaluations.add(evaluations);
+    }
+
+    public long anagramNodes() {
+        return anagramNodes.sum();
+    }
+
+    public long anagramSubsetsTried() {
+        return anagramSubsets.sum();
+    }
+
+    public long anagramDictionaryHits() {
+        return anagramHits.sum();
+    }
+
+    public long sentenceAnagramsCalls() {
+        return sentenceAnagramsCalls.sum();
+    }
+
+    public long sentenceAnagramsResults() {
+        return sentenceAnagramsResults.sum();
+    }
+
+    public long sentenceAnagramsNanos() {
+        return sentenceAnagramsNanos.sum();
+    }
+
+    public long encodedSymbols() {
+        return encodedSymbols.sum();
+    }
+
+    public long encodedBits() {
+        return encodedBits.sum();
+    }
+
+    public long decodedSymbols() {
+        return decodedSymbols.sum();
+    }
+
+    public long decodedBits() {
+        return decodedBits.sum();
+    }
+
+    public double encodedSymbolsPerSecond() {
+        return perSecond(encodedSymbols.sum(), encodeNanos.sum());
+    }
+
+    public double encodedBytesPerSecond() {
+        return perSecond(encodedBits.sum(), encodeNanos.sum()) / 8;
+    }
+
+    public double decodedSymbolsPerSecond() {
+        return perSecond(decodedSymbols.sum(), decodeNanos.sum());
+    }
+
+    public double decodedBytesPerSecond() {
+        return perSecond(decodedBits.sum(), decodeNanos.sum()) / 8;
+    }
+
+    public long treeBuilds() {
+        return treeBuilds.sum();
+    }
+
+    public long treeBuildNanos() {
+        return treeBuildNanos.sum();
+    }
+
+    public long setQuantifications() {
+        return setQuantifications.sum();
+    }
+
+    public long setEvaluations() {
+        return setEvaluations.sum();
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos == 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+}
@@ -0,0 +1,19 @@
+package metrics;
+
+/**
+ * Holds the `Metrics` the engines report to, `Metrics.NOOP` unless another one is installed.
+ */
+public final class Instrumentation {
+    private static volatile Metrics metrics = Metrics.NOOP;
+
+    private Instrumentation() {
+    }
+
+    public static Metrics metrics() {
+        return metrics;
+    }
+
+    public static void install(Metrics metrics) {
+        Instrumentation.metrics = metrics == null ? Metrics.NOOP : metrics;
+    }
+}
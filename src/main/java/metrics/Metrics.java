@@ -0,0 +1,56 @@
+package metrics;
+
+/**
+ * Receives measurements from the hot paths of the assignments.
+ *
+ * Every method has an empty default, so an implementation only overrides what it records.
+ * The engines ask `enabled()` before they measure anything that costs time, like reading the
+ * clock or the size of a sequence, so with `NOOP` installed instrumentation neither allocates
+ * nor measures. Implementations have to be thread-safe.
+ */
+public interface Metrics {
+    Metrics NOOP = new Metrics() {
+    };
+
+    default boolean enabled() {
+        return false;
+    }
+
+    /**
+     * `Anagrams` searched the anagrams of a remaining occurrence list. Every distinct list is
+     * searched once per sentence; repeated lists are answered from that search and are not
+     * reported again.
+     */
+    default void anagramNodeVisited() {
+    }
+
+    /** `Anagrams` looked up a subset of the occurrences in the dictionary. */
+    default void anagramSubsetTried(boolean dictionaryHit) {
+    }
+
+    /** `Anagrams.sentenceAnagrams` produced `sentences` anagrams in `nanos`. */
+    default void sentenceAnagrams(long sentences, long nanos) {
+    }
+
+    /**
+     * A Huffman coder encoded `symbols` characters into `bits` bits in `nanos`. Reported by
+     * `CodeTree`, `FlatCodeTree`, `ParallelCodec` and, for whole texts, `AdaptiveHuffman`.
+     */
+    default void huffmanEncoded(long symbols, long bits, long nanos) {
+    }
+
+    /**
+     * A Huffman coder decoded `bits` bits into `symbols` characters in `nanos`, reported by
+     * the same coders as `huffmanEncoded`.
+     */
+    default void huffmanDecoded(long symbols, long bits, long nanos) {
+    }
+
+    /** A code tree, optimal or length-limited, was built from a frequency table in `nanos`. */
+    default void codeTreeBuilt(long nanos) {
+    }
+
+    /** `Set.forall` or `Set.exists` tested the membership of `evaluations` integers. */
+    default void setQuantified(long evaluations) {
+    }
+}
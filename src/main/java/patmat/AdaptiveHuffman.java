@@ -0,0 +1,235 @@
+package patmat;
+
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
+import io.vavr.control.Option;
+import metrics.Instrumentation;
+import metrics.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * Adaptive Huffman coding (algorithm FGK).
+ *
+ * The code tree is not computed from the frequencies of the whole text in advance but
+ * maintained incrementally: after every encoded or decoded character the weight of its
+ * leaf is incremented and the tree is rearranged so that it stays a Huffman tree for the
+ * characters seen so far. An encoder and a decoder that start from the same empty model
+ * therefore always agree on the tree, and a stream can be coded in one pass.
+ *
+ * A character seen for the first time is sent as the code of the special "not yet
+ * transmitted" (NYT) leaf, followed by the 16 bits of the character.
+ *
+ * The tree is stored in parallel arrays indexed by node id, which grow with the number of
+ * distinct characters seen. `order` lists the node ids by decreasing rank (the root first),
+ * and the weights along `order` never increase. The leaf of a character is found through
+ * pages of 256 characters that are only allocated once a character of the page is seen, so
+ * a new model is small. Instances are mutable and not thread-safe; use one instance per
+ * stream and direction.
+ */
+public final class AdaptiveHuffman {
+    private static final int NONE = -1;
+    private static final int CHARACTER_BITS = 16;
+    private static final int PAGE_BITS = 8;
+
+    private int[] parent = new int[16];
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] weight = new int[16];
+    private int[] symbol = new int[16];
+    private int[] rank = new int[16];
+    private int[] order = new int[16];
+    private final int[][] leaves = new int[1 << (CHARACTER_BITS - PAGE_BITS)][];
+    private int size;
+    private int nyt;
+
+    // decoder state
+    private int current;
+    private int rawBits;
+    private int rawValue;
+
+    public AdaptiveHuffman() {
+        nyt = newNode(NONE, NONE);
+        current = nyt;
+    }
+
+    /**
+     * Encodes `character` with the current tree into a sequence of bits, then updates the tree.
+     */
+    public Seq<Integer> encode(Character character) {
+        int leaf = leaf(character);
+        Seq<Integer> bits = path(leaf == NONE ? nyt : leaf);
+        if (leaf == NONE) {
+            for (int i = CHARACTER_BITS - 1; i >= 0; i--) bits = bits.append((character >> i) & 1);
+        }
+        update(character);
+        return bits;
+    }
+
+    /**
+     * Feeds one bit to the decoder. Returns the decoded character once the bit completes the
+     * code of a character, and updates the tree in that case.
+     */
+    public Option<Character> decode(Integer bit) {
+        if (bit != 0 && bit != 1) throw new IllegalArgumentException("not a bit: " + bit);
+        if (current == nyt) {
+            rawValue = (rawValue << 1) | bit;
+            if (++rawBits < CHARACTER_BITS) return Option.none();
+            return Option.some(emit((char) rawValue));
+        }
+        current = bit == 0 ? left[current] : right[current];
+        if (left[current] != NONE || current == nyt) return Option.none();
+        return Option.some(emit((char) symbol[current]));
+    }
+
+    /**
+     * Returns a snapshot of the current tree as a `CodeTree`, leaving out the NYT leaf.
+     * The result is empty as long as no character has been coded.
+     */
+    public Option<CodeTree> toCodeTree() {
+        return size == 1 ? Option.none() : Option.some(toCodeTree(order[0]));
+    }
+
+    /**
+     * Encodes the whole text `characters` in one pass, starting from an empty model.
+     *
+     * Whole texts are reported to `Metrics`; the single characters and bits that the instance
+     * methods code are not, since timing every symbol would cost more than coding it.
+     */
+    public static Seq<Integer> encode(Seq<Character> characters) {
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        AdaptiveHuffman model = new AdaptiveHuffman();
+        Seq<Integer> encoded = characters.foldLeft(Vector.empty(), (bits, character) -> bits.appendAll(model.encode(character)));
+        if (metrics.enabled()) metrics.huffmanEncoded(characters.size(), encoded.size(), System.nanoTime() - start);
+        return encoded;
+    }
+
+    /**
+     * Decodes a bit sequence produced by `encode`, starting from an empty model.
+     */
+    public static Seq<Character> decode(Seq<Integer> bits) {
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        AdaptiveHuffman model = new AdaptiveHuffman();
+        Vector<Character> characters = Vector.empty();
+        for (Integer bit : bits) {
+            Option<Character> character = model.decode(bit);
+            if (character.isDefined()) characters = characters.append(character.get());
+        }
+        if (metrics.enabled()) metrics.huffmanDecoded(characters.size(), bits.size(), System.nanoTime() - start);
+        return characters;
+    }
+
+    private char emit(char character) {
+        update(character);
+        current = order[0];
+        rawBits = 0;
+        rawValue = 0;
+        return character;
+    }
+
+    private CodeTree toCodeTree(int node) {
+        if (left[node] == NONE) return new CodeTree.Leaf((char) symbol[node], weight[node]);
+        if (left[node] == nyt) return toCodeTree(right[node]);
+        if (right[node] == nyt) return toCodeTree(left[node]);
+        return CodeTree.makeCodeTree(toCodeTree(left[node]), toCodeTree(right[node]));
+    }
+
+    private Seq<Integer> path(int node) {
+        List<Integer> bits = List.empty();
+        for (int n = node; parent[n] != NONE; n = parent[n]) {
+            bits = bits.prepend(left[parent[n]] == n ? 0 : 1);
+        }
+        return bits;
+    }
+
+    private void update(char character) {
+        int node = leaf(character);
+        if (node == NONE) {
+            // the NYT leaf becomes an internal node with a new NYT leaf and the new character
+            int fork = nyt;
+            node = newNode(fork, character);
+            nyt = newNode(fork, NONE);
+            left[fork] = nyt;
+            right[fork] = node;
+            page(character)[character & ((1 << PAGE_BITS) - 1)] = node;
+        }
+        while (node != NONE) {
+            int leader = order[leader(node)];
+            if (leader != node && leader != parent[node]) swap(node, leader);
+            weight[node]++;
+            node = parent[node];
+        }
+    }
+
+    private int leaf(char character) {
+        int[] page = leaves[character >> PAGE_BITS];
+        return page == null ? NONE : page[character & ((1 << PAGE_BITS) - 1)];
+    }
+
+    private int[] page(char character) {
+        int[] page = leaves[character >> PAGE_BITS];
+        if (page == null) {
+            page = new int[1 << PAGE_BITS];
+            Arrays.fill(page, NONE);
+            leaves[character >> PAGE_BITS] = page;
+        }
+        return page;
+    }
+
+    /**
+     * Returns the highest rank holding a node of the same weight as `node`.
+     */
+    private int leader(int node) {
+        int r = rank[node];
+        while (r > 0 && weight[order[r - 1]] == weight[node]) r--;
+        return r;
+    }
+
+    /**
+     * Exchanges the positions of the subtrees rooted at `a` and `b` in the tree and in `order`.
+     */
+    private void swap(int a, int b) {
+        int parentA = parent[a];
+        int parentB = parent[b];
+        if (parentA == parentB) {
+            int l = left[parentA];
+            left[parentA] = right[parentA];
+            right[parentA] = l;
+        } else {
+            if (left[parentA] == a) left[parentA] = b; else right[parentA] = b;
+            if (left[parentB] == b) left[parentB] = a; else right[parentB] = a;
+            parent[a] = parentB;
+            parent[b] = parentA;
+        }
+        int rankA = rank[a];
+        rank[a] = rank[b];
+        rank[b] = rankA;
+        order[rank[a]] = a;
+        order[rank[b]] = b;
+    }
+
+    private int newNode(int parentNode, int character) {
+        if (size == parent.length) {
+            int capacity = size * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            weight = Arrays.copyOf(weight, capacity);
+            symbol = Arrays.copyOf(symbol, capacity);
+            rank = Arrays.copyOf(rank, capacity);
+            order = Arrays.copyOf(order, capacity);
+        }
+        int node = size++;
+        parent[node] = parentNode;
+        left[node] = NONE;
+        right[node] = NONE;
+        weight[node] = 0;
+        symbol[node] = character;
+        rank[node] = node;
+        order[node] = node;
+        return node;
+    }
+}
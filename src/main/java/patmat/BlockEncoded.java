@@ -0,0 +1,49 @@
+package patmat;
+
+import io.vavr.Tuple2;
+import io.vavr.collection.IndexedSeq;
+
+/**
+ * A Huffman bit sequence split into independently decodable blocks.
+ *
+ * Every entry of `index` is a pair of the bit offset at which a block starts and the
+ * position of the first symbol encoded in that block. Blocks hold `blockSize` symbols,
+ * except for the last one which holds the remaining `length - symbolOffset` symbols.
+ */
+public final class BlockEncoded {
+    public final IndexedSeq<Integer> bits;
+    public final IndexedSeq<Tuple2<Integer, Integer>> index;
+    public final int blockSize;
+    public final int length;
+
+    public BlockEncoded(IndexedSeq<Integer> bits, IndexedSeq<Tuple2<Integer, Integer>> index, int blockSize, int length) {
+        this.bits = bits;
+        this.index = index;
+        this.blockSize = blockSize;
+        this.length = length;
+    }
+
+    /**
+     * Returns the number of symbols encoded in block `block`.
+     */
+    public int symbolCount(int block) {
+        int end = block + 1 < index.size() ? index.get(block + 1)._2 : length;
+        return end - index.get(block)._2;
+    }
+
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (other instanceof BlockEncoded) {
+            BlockEncoded o = (BlockEncoded) other;
+            return this.bits.eq(o.bits) &&
+                    this.index.eq(o.index) &&
+                    this.blockSize == o.blockSize &&
+                    this.length == o.length;
+        }
+        return false;
+    }
+
+    public int hashCode() {
+        return ((bits.hashCode() * 31 + index.hashCode()) * 31 + blockSize) * 31 + length;
+    }
+}
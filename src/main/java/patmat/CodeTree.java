@@ -6,6 +6,8 @@ import io.vavr.Tuple2;
 import io.vavr.collection.CharSeq;
 import io.vavr.collection.List;
 import io.vavr.collection.Seq;
+import metrics.Instrumentation;
+import metrics.Metrics;
 
 import java.util.function.Predicate;
 
@@ -13,7 +15,6 @@ import static io.vavr.API.*;
 import static io.vavr.Patterns.$Cons;
 import static io.vavr.Patterns.$Nil;
 import static io.vavr.Patterns.$Tuple2;
-import static patmat.CodeTreePatterns.*;
 
 /**
  * Assignment 4: Huffman coding
@@ -28,6 +29,19 @@ import static patmat.CodeTreePatterns.*;
  * leaves.
  */
 public interface CodeTree {
+    /**
+     * Dispatches on the kind of a code tree node without allocating, unlike the `$Fork` and
+     * `$Leaf` patterns of `CodeTreePatterns`. The argument `arg` is passed through to the
+     * method that is called, so that stateless visitors can be shared.
+     */
+    interface Visitor<A, R> {
+        R visitFork(Fork fork, A arg);
+
+        R visitLeaf(Leaf leaf, A arg);
+    }
+
+    <A, R> R accept(Visitor<A, R> visitor, A arg);
+
     final class Fork implements CodeTree {
         public CodeTree left;
         public CodeTree right;
@@ -41,6 +55,10 @@ public interface CodeTree {
             this.weight = weight;
         }
 
+        public <A, R> R accept(Visitor<A, R> visitor, A arg) {
+            return visitor.visitFork(this, arg);
+        }
+
         public boolean equals(Object other) {
             if (this == other) return true;
             if (other instanceof Fork) {
@@ -63,6 +81,10 @@ public interface CodeTree {
             this.weight = weight;
         }
 
+        public <A, R> R accept(Visitor<A, R> visitor, A arg) {
+            return visitor.visitLeaf(this, arg);
+        }
+
         public boolean equals(Object other) {
             if (this == other) return true;
             if (other instanceof Leaf) {
@@ -77,21 +99,11 @@ public interface CodeTree {
     // Part 1: Basics
 
     default Integer weight() {
-        return Match(this).of(
-                Case($Fork($(), $(), $(), $()),
-                        (l, r, c, weight) -> weight),
-                Case($Leaf($(), $()),
-                        (c, weight) -> weight)
-        );
+        return accept(CodeTreeVisitors.WEIGHT, null);
     }
 
     default Seq<Character> characters() {
-        return Match(this).of(
-                Case($Fork($(), $(), $(), $()),
-                        (l, r, characters, w) -> characters),
-                Case($Leaf($(), $()),
-                        (character, w) -> CharSeq.of(character))
-        );
+        return accept(CodeTreeVisitors.CHARACTERS, null);
     }
 
     static Fork makeCodeTree(CodeTree left, CodeTree right) {
@@ -200,8 +212,9 @@ public interface CodeTree {
             Predicate<Seq<CodeTree>> condition, Function1<Seq<CodeTree>, Seq<CodeTree>> action
     ) {
         return trees -> {
-            if (condition.test(trees)) return trees;
-            return until(condition, action).apply(action.apply(trees));
+            Seq<CodeTree> current = trees;
+            while (!condition.test(current)) current = action.apply(current);
+            return current;
         };
     }
 
@@ -212,9 +225,29 @@ public interface CodeTree {
      * frequencies from that text and creates a code tree based on them.
      */
     static CodeTree createCodeTree(Seq<Character> characters) {
-        return until(x -> singleton(x), x -> combine(x))
-                .apply(makeOrderedLeafList(times(characters)).map(x -> x))
+        return createCodeTreeFromFrequencies(times(characters));
+    }
+
+    /**
+     * This function creates an optimal code tree for the frequency table `freqs`, for example
+     * one computed from a large file by `Histogram`.
+     */
+    static CodeTree createCodeTreeFromFrequencies(Seq<Tuple2<Character, Integer>> freqs) {
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        CodeTree tree = until(x -> singleton(x), x -> combine(x))
+                .apply(makeOrderedLeafList(freqs).map(x -> x))
                 .single();
+        if (metrics.enabled()) metrics.codeTreeBuilt(System.nanoTime() - start);
+        return tree;
+    }
+
+    /**
+     * This function creates a code tree for the text `characters` in which no code is longer
+     * than `maxLength` bits. It is optimal under that limit, see `LengthLimitedCodeTree`.
+     */
+    static CodeTree createCodeTree(Seq<Character> characters, int maxLength) {
+        return LengthLimitedCodeTree.create(characters, maxLength);
     }
 
     // Part 3: Decoding
@@ -226,20 +259,26 @@ public interface CodeTree {
      * the resulting list of characters.
      */
     default Seq<Character> decode(Seq<Integer> bits) {
-        return decodeRec(this, bits, CharSeq.of());
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        Seq<Character> characters = decodeRec(this, bits, CharSeq.of());
+        if (metrics.enabled()) metrics.huffmanDecoded(characters.size(), bits.size(), System.nanoTime() - start);
+        return characters;
     }
 
     default Seq<Character> decodeRec(CodeTree subTree, Seq<Integer> remaining, Seq<Character> acc) {
-        return Match(Tuple.of(subTree, remaining)).of(
-                Case($Tuple2($Leaf($(), $()), $(rest -> rest.isEmpty())),
-                        (leaf, rest) -> acc.append(leaf.character)),
-                Case($Tuple2($Leaf($(), $()), $(rest -> !rest.isEmpty())),
-                        (leaf, rest) -> decodeRec(this, rest, acc.append(leaf.character))),
-                Case($Tuple2($Fork($(), $(), $(), $()), $(rest -> rest.head() == 0)),
-                        (fork, rest) -> decodeRec(fork.left, rest.tail(), acc)),
-                Case($Tuple2($Fork($(), $(), $(), $()), $(rest -> rest.head() == 1)),
-                        (fork, rest) -> decodeRec(fork.right, rest.tail(), acc))
-        );
+        // a loop instead of a recursive call per bit, so long bit sequences do not overflow the stack
+        while (true) {
+            Character character = subTree.accept(CodeTreeVisitors.LEAF_CHARACTER, null);
+            if (character != null) {
+                acc = acc.append(character);
+                if (remaining.isEmpty()) return acc;
+                subTree = this;
+            } else {
+                subTree = subTree.accept(CodeTreeVisitors.CHILD, remaining.head());
+                remaining = remaining.tail();
+            }
+        }
     }
 
     /**
@@ -269,17 +308,19 @@ public interface CodeTree {
      * into a sequence of bits.
      */
     default Function1<Seq<Character>, Seq<Integer>> encode() {
-        return characters -> characters.flatMap(x -> encodeRec(this, x, List.of()));
+        return characters -> {
+            Metrics metrics = Instrumentation.metrics();
+            long start = metrics.enabled() ? System.nanoTime() : 0;
+            Seq<Integer> bits = characters.flatMap(x -> encodeRec(this, x, List.of()));
+            if (metrics.enabled()) metrics.huffmanEncoded(characters.size(), bits.size(), System.nanoTime() - start);
+            return bits;
+        };
     }
 
     static Seq<Integer> encodeRec(CodeTree tree, Character character, Seq<Integer> acc) {
-        return Match(tree).of(
-                Case($Leaf($(), $()), (leaf, rest) -> acc),
-                Case($Fork($(left -> left.characters().contains(character)), $(), $(), $()),
-                        (left, r, c, w) -> encodeRec(left, character, acc.append(0))),
-                Case($Fork($(), $(right -> right.characters().contains(character)), $(), $()),
-                        (l, right, c, w) -> encodeRec(right, character, acc.append(1)))
-        );
+        Integer bit = tree.accept(CodeTreeVisitors.BRANCH, character);
+        if (bit == null) return acc;
+        return encodeRec(tree.accept(CodeTreeVisitors.CHILD, bit), character, acc.append(bit));
     }
 
     // Part 4b: Encoding using code table
@@ -315,15 +356,7 @@ public interface CodeTree {
             CodeTree tree,
             Seq<Integer> code
     ) {
-        return Match(tree).of(
-                Case($Leaf($(), $()),
-                        (character, w) -> List.of((Tuple.of(character, code)))),
-                Case($Fork($(), $(), $(), $()),
-                        (left, right, c, w) -> mergeCodeTables(
-                                convertRec(left, code.append(0)),
-                                convertRec(right, code.append(1))
-                        ))
-        );
+        return tree.accept(CodeTreeVisitors.CONVERT, code);
     }
 
     /**
@@ -342,7 +375,29 @@ public interface CodeTree {
      * and then uses it to perform the actual encoding.
      */
     default Function1<Seq<Character>, Seq<Integer>> quickEncode() {
-        return characters -> characters.flatMap(codeBits(convert()));
+        return characters -> {
+            Metrics metrics = Instrumentation.metrics();
+            long start = metrics.enabled() ? System.nanoTime() : 0;
+            Seq<Integer> bits = characters.flatMap(codeBits(convert()));
+            if (metrics.enabled()) metrics.huffmanEncoded(characters.size(), bits.size(), System.nanoTime() - start);
+            return bits;
+        };
+    }
+
+    /**
+     * This function encodes `text` according to the code tree `tree`, encoding chunks of
+     * `ParallelCodec.DEFAULT_CHUNK_SIZE` characters concurrently on the common `ForkJoinPool`.
+     */
+    default Function1<Seq<Character>, Seq<Integer>> parallelEncode() {
+        return parallelEncode(ParallelCodec.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * This function encodes `text` according to the code tree `tree`, encoding chunks of
+     * `chunkSize` characters concurrently on the common `ForkJoinPool`.
+     */
+    default Function1<Seq<Character>, Seq<Integer>> parallelEncode(int chunkSize) {
+        return characters -> ParallelCodec.encode(this, characters, chunkSize);
     }
 
 }
@@ -0,0 +1,111 @@
+package patmat;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.CharSeq;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+
+/**
+ * Stateless visitors behind the basic `CodeTree` operations. Unlike the `$Fork`/`$Leaf`
+ * patterns of `CodeTreePatterns`, dispatching through them does not allocate.
+ */
+final class CodeTreeVisitors {
+    private CodeTreeVisitors() {
+    }
+
+    static final CodeTree.Visitor<Void, Integer> WEIGHT = new CodeTree.Visitor<Void, Integer>() {
+        public Integer visitFork(CodeTree.Fork fork, Void arg) {
+            return fork.weight;
+        }
+
+        public Integer visitLeaf(CodeTree.Leaf leaf, Void arg) {
+            return leaf.weight;
+        }
+    };
+
+    static final CodeTree.Visitor<Void, Seq<Character>> CHARACTERS = new CodeTree.Visitor<Void, Seq<Character>>() {
+        public Seq<Character> visitFork(CodeTree.Fork fork, Void arg) {
+            return fork.characters;
+        }
+
+        public Seq<Character> visitLeaf(CodeTree.Leaf leaf, Void arg) {
+            return CharSeq.of(leaf.character);
+        }
+    };
+
+    /**
+     * Returns the character of a `Leaf`, or `null` for a `Fork`.
+     */
+    static final CodeTree.Visitor<Void, Character> LEAF_CHARACTER = new CodeTree.Visitor<Void, Character>() {
+        public Character visitFork(CodeTree.Fork fork, Void arg) {
+            return null;
+        }
+
+        public Character visitLeaf(CodeTree.Leaf leaf, Void arg) {
+            return leaf.character;
+        }
+    };
+
+    /**
+     * Returns the sub-tree of a `Fork` selected by the bit `arg`, which has to be 0 or 1.
+     */
+    static final CodeTree.Visitor<Integer, CodeTree> CHILD = new CodeTree.Visitor<Integer, CodeTree>() {
+        public CodeTree visitFork(CodeTree.Fork fork, Integer bit) {
+            if (bit == 0) return fork.left;
+            if (bit == 1) return fork.right;
+            throw new IllegalArgumentException("not a bit: " + bit);
+        }
+
+        public CodeTree visitLeaf(CodeTree.Leaf leaf, Integer bit) {
+            throw new IllegalArgumentException("a leaf has no sub-trees");
+        }
+    };
+
+    /**
+     * Indicates whether a tree contains the character `arg`, without building the character
+     * list of a `Leaf`.
+     */
+    static final CodeTree.Visitor<Character, Boolean> CONTAINS = new CodeTree.Visitor<Character, Boolean>() {
+        public Boolean visitFork(CodeTree.Fork fork, Character character) {
+            return fork.characters.contains(character);
+        }
+
+        public Boolean visitLeaf(CodeTree.Leaf leaf, Character character) {
+            return leaf.character.equals(character);
+        }
+    };
+
+    /**
+     * Returns the bit of the sub-tree of a `Fork` that contains the character `arg`,
+     * or `null` for a `Leaf`.
+     */
+    static final CodeTree.Visitor<Character, Integer> BRANCH = new CodeTree.Visitor<Character, Integer>() {
+        public Integer visitFork(CodeTree.Fork fork, Character character) {
+            if (fork.left.accept(CONTAINS, character)) return 0;
+            if (fork.right.accept(CONTAINS, character)) return 1;
+            throw new IllegalArgumentException("character not in code tree: " + character);
+        }
+
+        public Integer visitLeaf(CodeTree.Leaf leaf, Character character) {
+            return null;
+        }
+    };
+
+    /**
+     * Returns the code table of a tree whose root has the code `arg`.
+     */
+    static final CodeTree.Visitor<Seq<Integer>, Seq<Tuple2<Character, Seq<Integer>>>> CONVERT =
+            new CodeTree.Visitor<Seq<Integer>, Seq<Tuple2<Character, Seq<Integer>>>>() {
+                public Seq<Tuple2<Character, Seq<Integer>>> visitFork(CodeTree.Fork fork, Seq<Integer> code) {
+                    return CodeTree.mergeCodeTables(
+                            fork.left.accept(this, code.append(0)),
+                            fork.right.accept(this, code.append(1))
+                    );
+                }
+
+                public Seq<Tuple2<Character, Seq<Integer>>> visitLeaf(CodeTree.Leaf leaf, Seq<Integer> code) {
+                    return List.of(Tuple.of(leaf.character, code));
+                }
+            };
+}
@@ -0,0 +1,198 @@
+package patmat;
+
+import io.vavr.collection.CharSeq;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
+import metrics.Instrumentation;
+import metrics.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * An immutable code tree stored in parallel primitive arrays.
+ *
+ * The nodes are numbered in pre-order, so the root is node 0 and the left child of a
+ * `Fork` node `n` is node `n + 1`; only the index of the right child is stored. The
+ * characters of the leaves are stored once, from left to right, which makes the characters
+ * below any node a contiguous range of that array instead of a copied `Seq<Character>`.
+ */
+public final class FlatCodeTree {
+    private static final int LEAF = -1;
+
+    private final int[] right;
+    private final int[] weight;
+    private final int[] leafFrom;
+    private final int[] leafTo;
+    private final char[] leafCharacters;
+    // leafCharacters sorted, with the position of every character in leafCharacters
+    private final char[] sortedCharacters;
+    private final int[] sortedPositions;
+
+    private FlatCodeTree(int[] right, int[] weight, int[] leafFrom, int[] leafTo, char[] leafCharacters) {
+        this.right = right;
+        this.weight = weight;
+        this.leafFrom = leafFrom;
+        this.leafTo = leafTo;
+        this.leafCharacters = leafCharacters;
+        long[] sorted = new long[leafCharacters.length];
+        for (int i = 0; i < leafCharacters.length; i++) sorted[i] = (long) leafCharacters[i] << 32 | i;
+        Arrays.sort(sorted);
+        this.sortedCharacters = new char[sorted.length];
+        this.sortedPositions = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sortedCharacters[i] = (char) (sorted[i] >>> 32);
+            sortedPositions[i] = (int) sorted[i];
+        }
+    }
+
+    /**
+     * Converts `tree` into its flat representation.
+     */
+    public static FlatCodeTree of(CodeTree tree) {
+        int leaves = tree.characters().size();
+        Builder builder = new Builder(2 * leaves - 1, leaves);
+        builder.add(tree);
+        return new FlatCodeTree(builder.right, builder.weight, builder.leafFrom, builder.leafTo, builder.leafCharacters);
+    }
+
+    /**
+     * Converts this tree back into `Fork` and `Leaf` nodes.
+     */
+    public CodeTree toCodeTree() {
+        return toCodeTree(0);
+    }
+
+    public int size() {
+        return right.length;
+    }
+
+    public boolean isLeaf(int node) {
+        return right[node] == LEAF;
+    }
+
+    public int left(int node) {
+        return node + 1;
+    }
+
+    public int right(int node) {
+        return right[node];
+    }
+
+    public int weight(int node) {
+        return weight[node];
+    }
+
+    public char character(int leaf) {
+        return leafCharacters[leafFrom[leaf]];
+    }
+
+    public Seq<Character> characters(int node) {
+        return CharSeq.of(new String(leafCharacters, leafFrom[node], leafTo[node] - leafFrom[node]));
+    }
+
+    /**
+     * Indicates whether `character` is one of the characters below `node`.
+     */
+    public boolean contains(int node, char character) {
+        int i = Arrays.binarySearch(sortedCharacters, character);
+        if (i < 0) return false;
+        int position = sortedPositions[i];
+        return leafFrom[node] <= position && position < leafTo[node];
+    }
+
+    /**
+     * Decodes the bit sequence `bits`, like `CodeTree.decode`. A tree that consists of a
+     * single leaf has no codes, so nothing is decoded with it.
+     */
+    public Seq<Character> decode(Seq<Integer> bits) {
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        Seq<Character> characters = decodeBits(bits);
+        if (metrics.enabled()) metrics.huffmanDecoded(characters.size(), bits.size(), System.nanoTime() - start);
+        return characters;
+    }
+
+    private Seq<Character> decodeBits(Seq<Integer> bits) {
+        if (isLeaf(0)) return Vector.empty();
+        Vector<Character> characters = Vector.empty();
+        int node = 0;
+        for (Integer bit : bits) {
+            if (bit != 0 && bit != 1) throw new IllegalArgumentException("not a bit: " + bit);
+            node = bit == 0 ? node + 1 : right[node];
+            if (right[node] == LEAF) {
+                characters = characters.append(character(node));
+                node = 0;
+            }
+        }
+        return characters;
+    }
+
+    /**
+     * Encodes `characters` into a sequence of bits, like `CodeTree.encode`. Throws an
+     * `IllegalArgumentException` for a character that is not in the tree.
+     */
+    public Seq<Integer> encode(Seq<Character> characters) {
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        Seq<Integer> bits = encodeCharacters(characters);
+        if (metrics.enabled()) metrics.huffmanEncoded(characters.size(), bits.size(), System.nanoTime() - start);
+        return bits;
+    }
+
+    private Seq<Integer> encodeCharacters(Seq<Character> characters) {
+        Vector<Integer> bits = Vector.empty();
+        for (Character character : characters) {
+            if (!contains(0, character)) throw new IllegalArgumentException("character not in code tree: " + character);
+            int node = 0;
+            while (right[node] != LEAF) {
+                if (contains(node + 1, character)) {
+                    bits = bits.append(0);
+                    node = node + 1;
+                } else {
+                    bits = bits.append(1);
+                    node = right[node];
+                }
+            }
+        }
+        return bits;
+    }
+
+    private CodeTree toCodeTree(int node) {
+        if (isLeaf(node)) return new CodeTree.Leaf(character(node), weight[node]);
+        return new CodeTree.Fork(toCodeTree(node + 1), toCodeTree(right[node]), characters(node), weight[node]);
+    }
+
+    private static final class Builder {
+        final int[] right;
+        final int[] weight;
+        final int[] leafFrom;
+        final int[] leafTo;
+        final char[] leafCharacters;
+        int nodes;
+        int leaves;
+
+        Builder(int nodes, int leaves) {
+            this.right = new int[nodes];
+            this.weight = new int[nodes];
+            this.leafFrom = new int[nodes];
+            this.leafTo = new int[nodes];
+            this.leafCharacters = new char[leaves];
+        }
+
+        void add(CodeTree tree) {
+            int node = nodes++;
+            leafFrom[node] = leaves;
+            weight[node] = tree.weight();
+            if (tree instanceof CodeTree.Leaf) {
+                right[node] = LEAF;
+                leafCharacters[leaves++] = ((CodeTree.Leaf) tree).character;
+            } else {
+                CodeTree.Fork fork = (CodeTree.Fork) tree;
+                add(fork.left);
+                right[node] = nodes;
+                add(fork.right);
+            }
+            leafTo[node] = leaves;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package patmat;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Character frequencies of large files.
+ *
+ * `CodeTree.times` needs the whole text as a `Seq<Character>`. The functions here instead
+ * map the file into memory segment by segment, count every segment into its own primitive
+ * array on a `ForkJoinPool` and add the arrays up at the end. The resulting counts are
+ * indexed by symbol and can be turned into a frequency table with `frequencies`.
+ */
+public class Histogram {
+    static final int SEGMENT_SIZE = 1 << 24;
+
+    /**
+     * Counts the bytes of `file`. The result has 256 entries, indexed by the unsigned byte.
+     */
+    public static long[] countBytes(Path file) {
+        return count(file, false, SEGMENT_SIZE);
+    }
+
+    /**
+     * Counts the characters of the UTF-8 encoded `file`. The result has 65536 entries, indexed
+     * by `char`, so code points outside of the basic multilingual plane are counted as their
+     * two surrogates. Malformed input is counted as the replacement character.
+     */
+    public static long[] countChars(Path file) {
+        return count(file, true, SEGMENT_SIZE);
+    }
+
+    /**
+     * Returns the frequency table of all symbols with a non-zero count in `counts`.
+     *
+     * The weights of a `CodeTree` are `Integer`s, so the weight of its root, the sum of all
+     * frequencies, has to fit in an `int`. If the counts add up to more, they are scaled down
+     * proportionally. Scaling keeps the order of the counts and keeps every symbol's
+     * frequency at least 1, so the resulting tree stays close to optimal for the real counts.
+     */
+    public static Seq<Tuple2<Character, Integer>> frequencies(long[] counts) {
+        long total = 0;
+        for (long count : counts) total += count;
+        long limit = Integer.MAX_VALUE - counts.length;
+        double scale = total > Integer.MAX_VALUE ? (double) limit / total : 1;
+        return List.range(0, counts.length)
+                .filter(symbol -> counts[symbol] > 0)
+                .map(symbol -> Tuple.of((char) symbol.intValue(), (int) Math.max(1, (long) (counts[symbol] * scale))));
+    }
+
+    static long[] count(Path file, boolean utf8, int segmentSize) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] boundaries = boundaries(channel, utf8, segmentSize);
+            return ForkJoinPool.commonPool().invoke(new CountTask(channel, boundaries, 0, boundaries.length - 1, utf8));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + file + ": ", e);
+        }
+    }
+
+    /**
+     * Splits the file into segments of about `segmentSize` bytes. In UTF-8 mode a boundary is
+     * moved past continuation bytes, so that no character is split between two segments.
+     */
+    private static long[] boundaries(FileChannel channel, boolean utf8, int segmentSize) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = List.of(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        for (long position = segmentSize; position < size; position += segmentSize) {
+            long boundary = position;
+            if (utf8) {
+                buffer.clear();
+                channel.read(buffer, boundary);
+                buffer.flip();
+                while (buffer.hasRemaining() && (buffer.get() & 0xC0) == 0x80) boundary++;
+            }
+            if (boundary < size) boundaries = boundaries.prepend(boundary);
+        }
+        return boundaries.prepend(size).reverse().distinct().toJavaStream().mapToLong(x -> x).toArray();
+    }
+
+    private static final class CountTask extends RecursiveTask<long[]> {
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+        private final boolean utf8;
+
+        CountTask(FileChannel channel, long[] boundaries, int from, int to, boolean utf8) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+            this.utf8 = utf8;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= 1) return countSegment();
+            int middle = from + (to - from) / 2;
+            CountTask left = new CountTask(channel, boundaries, from, middle, utf8);
+            CountTask right = new CountTask(channel, boundaries, middle, to, utf8);
+            left.fork();
+            long[] counts = right.compute();
+            long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) counts[i] += leftCounts[i];
+            return counts;
+        }
+
+        private long[] countSegment() {
+            long[] counts = new long[utf8 ? 1 << 16 : 1 << 8];
+            if (from == to) return counts;
+            MappedByteBuffer segment;
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, boundaries[from], boundaries[to] - boundaries[from]);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not map file segment: ", e);
+            }
+            if (!utf8) {
+                while (segment.hasRemaining()) counts[segment.get() & 0xFF]++;
+                return counts;
+            }
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer chars = CharBuffer.allocate(1 << 13);
+            CoderResult result;
+            do {
+                result = decoder.decode(segment, chars, true);
+                drain(chars, counts);
+            } while (result.isOverflow());
+            do {
+                result = decoder.flush(chars);
+                drain(chars, counts);
+            } while (result.isOverflow());
+            return counts;
+        }
+
+        private static void drain(CharBuffer chars, long[] counts) {
+            chars.flip();
+            while (chars.hasRemaining()) counts[chars.get()]++;
+            chars.clear();
+        }
+    }
+}
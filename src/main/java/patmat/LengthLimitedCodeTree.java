@@ -0,0 +1,163 @@
+package patmat;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.Tuple3;
+import io.vavr.Tuple4;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import metrics.Instrumentation;
+import metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Length-limited Huffman codes.
+ *
+ * `createCodeTree` builds an optimal tree, but on skewed frequencies that tree can become
+ * very deep. The package-merge algorithm computes code lengths that are optimal under the
+ * constraint that no code is longer than `maxLength` bits. The tree is then rebuilt from
+ * these lengths as a canonical code: characters with shorter codes come first, and
+ * characters of equal length are ordered alphabetically.
+ */
+public class LengthLimitedCodeTree {
+    /**
+     * This function creates a code tree for the text `characters` in which no character
+     * has a code longer than `maxLength` bits.
+     */
+    public static CodeTree create(Seq<Character> characters, int maxLength) {
+        return fromFrequencies(CodeTree.times(characters), maxLength);
+    }
+
+    /**
+     * Creates the canonical code tree with optimal code lengths of at most `maxLength` bits
+     * for the frequency table `freqs`.
+     */
+    public static CodeTree fromFrequencies(Seq<Tuple2<Character, Integer>> freqs, int maxLength) {
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        CodeTree tree = limitedTree(freqs, maxLength);
+        if (metrics.enabled()) metrics.codeTreeBuilt(System.nanoTime() - start);
+        return tree;
+    }
+
+    private static CodeTree limitedTree(Seq<Tuple2<Character, Integer>> freqs, int maxLength) {
+        Seq<Tuple2<Character, Integer>> lengths = codeLengths(freqs, maxLength);
+        if (lengths.size() == 1) return new CodeTree.Leaf(freqs.head()._1, freqs.head()._2);
+        Map<Character, Integer> weights = freqs.toJavaMap(x -> x);
+        return build(canonicalCodes(lengths).map(x -> Tuple.of(x._1, x._2, x._3, weights.get(x._1))), 0);
+    }
+
+    /**
+     * Computes for every character of the frequency table `freqs` the length of its code,
+     * such that the weighted code length is minimal and no code is longer than `maxLength`.
+     *
+     * The result is ordered by ascending length, characters of equal length alphabetically.
+     * A single character gets a code of length 0, like the `Leaf` that `createCodeTree`
+     * returns for it.
+     */
+    public static Seq<Tuple2<Character, Integer>> codeLengths(Seq<Tuple2<Character, Integer>> freqs, int maxLength) {
+        if (freqs.isEmpty()) throw new IllegalArgumentException("no characters to encode");
+        if (maxLength < 1 || maxLength < 31 && freqs.size() > 1 << maxLength)
+            throw new IllegalArgumentException(freqs.size() + " characters do not fit in codes of " + maxLength + " bits");
+        Seq<Tuple2<Character, Integer>> sorted = freqs.sortBy(x -> x._2);
+        if (sorted.size() == 1) return List.of(Tuple.of(sorted.head()._1, 0));
+
+        ArrayList<Item> leaves = new ArrayList<>();
+        for (Tuple2<Tuple2<Character, Integer>, Integer> x : sorted.zipWithIndex()) {
+            leaves.add(new Item(x._1._2, x._2, null, null));
+        }
+        ArrayList<Item> items = leaves;
+        for (int level = 1; level < maxLength; level++) {
+            items = merge(leaves, packages(items));
+        }
+
+        int[] lengths = new int[sorted.size()];
+        for (int i = 0; i < 2 * sorted.size() - 2; i++) {
+            items.get(i).countInto(lengths);
+        }
+        return sorted.zipWithIndex()
+                .map(x -> Tuple.of(x._1._1, lengths[x._2]))
+                .sortBy(x -> x._2 * 65536 + x._1)
+                .toList();
+    }
+
+    /**
+     * Assigns the canonical code to every character of the length table `lengths`, which has
+     * to be ordered like the result of `codeLengths`. Returns (character, length, code) triples.
+     */
+    static Seq<Tuple3<Character, Integer, Long>> canonicalCodes(Seq<Tuple2<Character, Integer>> lengths) {
+        List<Tuple3<Character, Integer, Long>> codes = List.empty();
+        long code = 0;
+        int previous = lengths.head()._2;
+        for (Tuple2<Character, Integer> entry : lengths) {
+            code <<= entry._2 - previous;
+            previous = entry._2;
+            codes = codes.prepend(Tuple.of(entry._1, entry._2, code++));
+        }
+        return codes.reverse();
+    }
+
+    /**
+     * Builds the subtree for the `entries` (character, length, code, weight) whose codes share
+     * the same first `depth` bits.
+     */
+    private static CodeTree build(Seq<Tuple4<Character, Integer, Long, Integer>> entries, int depth) {
+        if (entries.size() == 1) return new CodeTree.Leaf(entries.head()._1, entries.head()._4);
+        Tuple2<? extends Seq<Tuple4<Character, Integer, Long, Integer>>, ? extends Seq<Tuple4<Character, Integer, Long, Integer>>>
+                halves = entries.partition(x -> (x._3 >> (x._2 - depth - 1) & 1) == 0);
+        return CodeTree.makeCodeTree(build(halves._1, depth + 1), build(halves._2, depth + 1));
+    }
+
+    private static ArrayList<Item> packages(ArrayList<Item> items) {
+        ArrayList<Item> packages = new ArrayList<>(items.size() / 2);
+        for (int i = 0; i + 1 < items.size(); i += 2) {
+            Item a = items.get(i);
+            Item b = items.get(i + 1);
+            packages.add(new Item(a.weight + b.weight, -1, a, b));
+        }
+        return packages;
+    }
+
+    private static ArrayList<Item> merge(ArrayList<Item> leaves, ArrayList<Item> packages) {
+        ArrayList<Item> merged = new ArrayList<>(leaves.size() + packages.size());
+        int i = 0;
+        int j = 0;
+        while (i < leaves.size() || j < packages.size()) {
+            if (j == packages.size() || i < leaves.size() && leaves.get(i).weight <= packages.get(j).weight) {
+                merged.add(leaves.get(i++));
+            } else {
+                merged.add(packages.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * A leaf (a character, identified by its index in the sorted frequency table) or a
+     * package of two items of the previous level.
+     */
+    private static final class Item {
+        final long weight;
+        final int symbol;
+        final Item first;
+        final Item second;
+
+        Item(long weight, int symbol, Item first, Item second) {
+            this.weight = weight;
+            this.symbol = symbol;
+            this.first = first;
+            this.second = second;
+        }
+
+        void countInto(int[] lengths) {
+            if (first == null) {
+                lengths[symbol]++;
+            } else {
+                first.countInto(lengths);
+                second.countInto(lengths);
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package patmat;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.Array;
+import io.vavr.collection.IndexedSeq;
+import io.vavr.collection.Map;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
+import metrics.Instrumentation;
+import metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel Huffman encoding and decoding.
+ *
+ * The text is split into chunks of `chunkSize` characters which are encoded concurrently
+ * on a `ForkJoinPool` using the code table of the tree. Since a bit is an `Integer`, the
+ * bit streams of the chunks are simply concatenated in order, no shifting is needed: the
+ * output is allocated once with the total size, and every chunk copies its bits to its own
+ * offset, again concurrently.
+ *
+ * A Huffman bit stream cannot be split at an arbitrary position, so for parallel decoding
+ * the encoder can also record a `BlockEncoded` index with the bit offset of every chunk.
+ * The blocks are then decoded concurrently, and any symbol position can be reached by
+ * decoding only the block that contains it.
+ */
+public class ParallelCodec {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+    /**
+     * Encodes `characters` with `tree` in chunks of `DEFAULT_CHUNK_SIZE` characters.
+     */
+    public static Seq<Integer> encode(CodeTree tree, Seq<Character> characters) {
+        return encode(tree, characters, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Encodes `characters` with `tree`, splitting the work into chunks of `chunkSize`
+     * characters. The result is the same as `tree.encode().apply(characters)`, and like that
+     * an `IllegalArgumentException` is thrown for a character that is not in the tree.
+     */
+    public static Seq<Integer> encode(CodeTree tree, Seq<Character> characters, int chunkSize) {
+        return encode(tree, characters, chunkSize, ForkJoinPool.commonPool());
+    }
+
+    public static Seq<Integer> encode(CodeTree tree, Seq<Character> characters, int chunkSize, ForkJoinPool pool) {
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        Seq<Integer> bits = concat(encodeChunks(tree, characters, chunkSize, pool), pool);
+        if (metrics.enabled()) metrics.huffmanEncoded(characters.size(), bits.size(), System.nanoTime() - start);
+        return bits;
+    }
+
+    /**
+     * Encodes `characters` with `tree` into blocks of `DEFAULT_CHUNK_SIZE` symbols.
+     */
+    public static BlockEncoded encodeBlocks(CodeTree tree, Seq<Character> characters) {
+        return encodeBlocks(tree, characters, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Encodes `characters` with `tree` into blocks of `blockSize` symbols and records the
+     * bit offset of every block in the index of the result.
+     */
+    public static BlockEncoded encodeBlocks(CodeTree tree, Seq<Character> characters, int blockSize) {
+        return encodeBlocks(tree, characters, blockSize, ForkJoinPool.commonPool());
+    }
+
+    public static BlockEncoded encodeBlocks(CodeTree tree, Seq<Character> characters, int blockSize, ForkJoinPool pool) {
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        Vector<byte[]> chunks = encodeChunks(tree, characters, blockSize, pool);
+        Vector<Tuple2<Integer, Integer>> index = Vector.empty();
+        int bitOffset = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            index = index.append(Tuple.of(bitOffset, i * blockSize));
+            bitOffset += chunks.get(i).length;
+        }
+        BlockEncoded encoded = new BlockEncoded(concat(chunks, pool), index, blockSize, characters.size());
+        if (metrics.enabled()) metrics.huffmanEncoded(encoded.length, encoded.bits.size(), System.nanoTime() - start);
+        return encoded;
+    }
+
+    /**
+     * Decodes all blocks of `encoded` concurrently and returns the resulting list of characters.
+     */
+    public static Seq<Character> decode(CodeTree tree, BlockEncoded encoded) {
+        return decode(tree, encoded, ForkJoinPool.commonPool());
+    }
+
+    public static Seq<Character> decode(CodeTree tree, BlockEncoded encoded, ForkJoinPool pool) {
+        if (encoded.index.isEmpty()) return Vector.empty();
+        Metrics metrics = Instrumentation.metrics();
+        long start = metrics.enabled() ? System.nanoTime() : 0;
+        Seq<Character> characters = pool.invoke(new DecodeTask(tree, encoded, 0, encoded.index.size()));
+        if (metrics.enabled()) metrics.huffmanDecoded(characters.size(), encoded.bits.size(), System.nanoTime() - start);
+        return characters;
+    }
+
+    /**
+     * Decodes the characters at the positions `from` (inclusive) to `to` (exclusive) without
+     * decoding the blocks before `from`. Unlike whole-text decoding, random access is not
+     * reported to `Metrics`, since the number of bits it reads is not known without counting.
+     */
+    public static Seq<Character> decodeRange(CodeTree tree, BlockEncoded encoded, int from, int to) {
+        if (from < 0 || to > encoded.length || from > to)
+            throw new IndexOutOfBoundsException("decodeRange(" + from + ", " + to + ") of length " + encoded.length);
+        Vector<Character> result = Vector.empty();
+        int position = from;
+        while (position < to) {
+            int block = position / encoded.blockSize;
+            int skip = position - encoded.index.get(block)._2;
+            int count = Math.min(encoded.symbolCount(block) - skip, to - position);
+            result = result.appendAll(decodeBlock(tree, encoded, block, skip, count));
+            position += count;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the character at position `position` of the encoded text.
+     */
+    public static Character decodeAt(CodeTree tree, BlockEncoded encoded, int position) {
+        return decodeRange(tree, encoded, position, position + 1).head();
+    }
+
+    /**
+     * Decodes `count` characters of block `block`, after skipping its first `skip` characters.
+     */
+    static Vector<Character> decodeBlock(CodeTree tree, BlockEncoded encoded, int block, int skip, int count) {
+        Vector<Character> characters = Vector.empty();
+        int position = encoded.index.get(block)._1;
+        for (int decoded = 0; decoded < skip + count; decoded++) {
+            CodeTree node = tree;
+            Character character;
+            while ((character = node.accept(CodeTreeVisitors.LEAF_CHARACTER, null)) == null) {
+                node = node.accept(CodeTreeVisitors.CHILD, encoded.bits.get(position++));
+            }
+            if (decoded >= skip) characters = characters.append(character);
+        }
+        return characters;
+    }
+
+    /**
+     * Encodes every chunk of `characters` independently and returns the bit sequences of the
+     * chunks in order.
+     */
+    static Vector<byte[]> encodeChunks(CodeTree tree, Seq<Character> characters, int chunkSize, ForkJoinPool pool) {
+        if (chunkSize < 1) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        Map<Character, Seq<Integer>> table = tree.convert().toMap(x -> x);
+        IndexedSeq<Character> text = characters instanceof IndexedSeq
+                ? (IndexedSeq<Character>) characters
+                : characters.toVector();
+        return pool.invoke(new EncodeTask(table, text, 0, text.size(), chunkSize));
+    }
+
+    /**
+     * Concatenates the bit sequences of `chunks` into a single sequence, copying the chunks
+     * concurrently.
+     */
+    static Array<Integer> concat(Vector<byte[]> chunks, ForkJoinPool pool) {
+        int[] offsets = new int[chunks.size() + 1];
+        for (int i = 0; i < chunks.size(); i++) offsets[i + 1] = offsets[i] + chunks.get(i).length;
+        Integer[] bits = new Integer[offsets[chunks.size()]];
+        if (!chunks.isEmpty()) pool.invoke(new ConcatTask(chunks, offsets, bits, 0, chunks.size()));
+        return Array.of(bits);
+    }
+
+    private static final class EncodeTask extends RecursiveTask<Vector<byte[]>> {
+        private final Map<Character, Seq<Integer>> table;
+        private final IndexedSeq<Character> text;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        EncodeTask(Map<Character, Seq<Integer>> table, IndexedSeq<Character> text, int from, int to, int chunkSize) {
+            this.table = table;
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Vector<byte[]> compute() {
+            if (to - from <= chunkSize) return Vector.of(encodeChunk());
+            // split on a chunk boundary so that chunks do not depend on the recursion shape
+            int chunks = (to - from + chunkSize - 1) / chunkSize;
+            int middle = from + chunks / 2 * chunkSize;
+            EncodeTask left = new EncodeTask(table, text, from, middle, chunkSize);
+            EncodeTask right = new EncodeTask(table, text, middle, to, chunkSize);
+            left.fork();
+            Vector<byte[]> rightChunks = right.compute();
+            return left.join().appendAll(rightChunks);
+        }
+
+        private byte[] encodeChunk() {
+            byte[] bits = new byte[Math.max(16, to - from)];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                Character character = text.get(i);
+                Seq<Integer> code = table.get(character)
+                        .getOrElseThrow(() -> new IllegalArgumentException("character not in code tree: " + character));
+                if (size + code.size() > bits.length) bits = Arrays.copyOf(bits, 2 * bits.length + code.size());
+                for (Integer bit : code) bits[size++] = bit.byteValue();
+            }
+            return Arrays.copyOf(bits, size);
+        }
+    }
+
+    private static final class ConcatTask extends RecursiveAction {
+        private final Vector<byte[]> chunks;
+        private final int[] offsets;
+        private final Integer[] bits;
+        private final int from;
+        private final int to;
+
+        ConcatTask(Vector<byte[]> chunks, int[] offsets, Integer[] bits, int from, int to) {
+            this.chunks = chunks;
+            this.offsets = offsets;
+            this.bits = bits;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                byte[] chunk = chunks.get(from);
+                for (int i = 0; i < chunk.length; i++) bits[offsets[from] + i] = (int) chunk[i];
+                return;
+            }
+            int middle = from + (to - from) / 2;
+            invokeAll(new ConcatTask(chunks, offsets, bits, from, middle), new ConcatTask(chunks, offsets, bits, middle, to));
+        }
+    }
+
+    private static final class DecodeTask extends RecursiveTask<Vector<Character>> {
+        private final CodeTree tree;
+        private final BlockEncoded encoded;
+        private final int from;
+        private final int to;
+
+        DecodeTask(CodeTree tree, BlockEncoded encoded, int from, int to) {
+            this.tree = tree;
+            this.encoded = encoded;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Vector<Character> compute() {
+            if (to - from == 1) return decodeBlock(tree, encoded, from, 0, encoded.symbolCount(from));
+            int middle = from + (to - from) / 2;
+            DecodeTask left = new DecodeTask(tree, encoded, from, middle);
+            DecodeTask right = new DecodeTask(tree, encoded, middle, to);
+            left.fork();
+            Vector<Character> rightCharacters = right.compute();
+            return left.join().appendAll(rightCharacters);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package recfun;
+
+import io.vavr.collection.CharSeq;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The parenthesis balance of a piece of text, as checked by `RecFun.balance`, summarized as
+ * the number of closing parentheses without a match before them and the number of opening
+ * parentheses without a match after them.
+ *
+ * Summaries of adjacent pieces combine associatively, so a text can be cut into chunks that
+ * are summarized independently and in parallel, or fed piece by piece as it arrives. The text
+ * is balanced if its summary has no unmatched parentheses.
+ */
+public final class Balance {
+    public static final Balance EMPTY = new Balance(0, 0);
+
+    static final int CHUNK_SIZE = 1 << 16;
+    static final int SEGMENT_SIZE = 1 << 24;
+
+    public final long closes;
+    public final long opens;
+
+    public Balance(long closes, long opens) {
+        this.closes = closes;
+        this.opens = opens;
+    }
+
+    public boolean isBalanced() {
+        return closes == 0 && opens == 0;
+    }
+
+    /**
+     * Returns the summary of this piece of text followed by the piece summarized by `next`.
+     */
+    public Balance combine(Balance next) {
+        long matched = Math.min(opens, next.closes);
+        return new Balance(closes + next.closes - matched, opens - matched + next.opens);
+    }
+
+    /**
+     * Returns the summary of this piece of text followed by `chars`.
+     */
+    public Balance append(CharSequence chars) {
+        return combine(of(chars, 0, chars.length()));
+    }
+
+    /**
+     * Summarizes the characters `from` (inclusive) to `to` (exclusive) of `chars`.
+     */
+    public static Balance of(CharSequence chars, int from, int to) {
+        long closes = 0;
+        long opens = 0;
+        for (int i = from; i < to; i++) {
+            char c = chars.charAt(i);
+            if (c == '(') opens++;
+            else if (c == ')') {
+                if (opens > 0) opens--;
+                else closes++;
+            }
+        }
+        return new Balance(closes, opens);
+    }
+
+    /**
+     * Checks whether the parentheses in `chars` are balanced, summarizing chunks of the text
+     * in parallel.
+     */
+    public static boolean balance(CharSeq chars) {
+        return balance(chars, CHUNK_SIZE);
+    }
+
+    static boolean balance(CharSeq chars, int chunkSize) {
+        return balance(chars, chunkSize, ForkJoinPool.commonPool());
+    }
+
+    static boolean balance(CharSeq chars, int chunkSize, ForkJoinPool pool) {
+        return pool
+                .invoke(new ReduceTask((from, to) -> of(chars, (int) from, (int) to), 0, chars.length(), chunkSize))
+                .isBalanced();
+    }
+
+    /**
+     * Checks whether the parentheses in `file` are balanced. The file is mapped into memory
+     * segment by segment, and the segments are summarized in parallel. Since the bytes of
+     * `(` and `)` never occur inside other characters in UTF-8 or any ASCII based encoding,
+     * the bytes are not decoded.
+     */
+    public static boolean balance(Path file) {
+        return balance(file, SEGMENT_SIZE);
+    }
+
+    static boolean balance(Path file, int segmentSize) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return ForkJoinPool.commonPool()
+                    .invoke(new ReduceTask((from, to) -> ofSegment(channel, from, to), 0, channel.size(), segmentSize))
+                    .isBalanced();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + file + ": ", e);
+        }
+    }
+
+    private static Balance ofSegment(FileChannel channel, long from, long to) {
+        MappedByteBuffer segment;
+        try {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not map file segment: ", e);
+        }
+        long closes = 0;
+        long opens = 0;
+        while (segment.hasRemaining()) {
+            byte b = segment.get();
+            if (b == '(') opens++;
+            else if (b == ')') {
+                if (opens > 0) opens--;
+                else closes++;
+            }
+        }
+        return new Balance(closes, opens);
+    }
+
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (other instanceof Balance) {
+            Balance o = (Balance) other;
+            return this.closes == o.closes && this.opens == o.opens;
+        }
+        return false;
+    }
+
+    public int hashCode() {
+        return Long.hashCode(closes) * 31 + Long.hashCode(opens);
+    }
+
+    public String toString() {
+        return "Balance(" + closes + ", " + opens + ")";
+    }
+
+    private interface Summarizer {
+        Balance summarize(long from, long to);
+    }
+
+    private static final class ReduceTask extends RecursiveTask<Balance> {
+        private final Summarizer summarizer;
+        private final long from;
+        private final long to;
+        private final long chunkSize;
+
+        ReduceTask(Summarizer summarizer, long from, long to, long chunkSize) {
+            this.summarizer = summarizer;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Balance compute() {
+            if (to - from <= chunkSize) return summarizer.summarize(from, to);
+            long middle = from + (to - from) / 2;
+            ReduceTask left = new ReduceTask(summarizer, from, middle, chunkSize);
+            ReduceTask right = new ReduceTask(summarizer, middle, to, chunkSize);
+            left.fork();
+            Balance next = right.compute();
+            return left.join().combine(next);
+        }
+    }
+}
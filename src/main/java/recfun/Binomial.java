@@ -0,0 +1,173 @@
+package recfun;
+
+import io.vavr.collection.Array;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Stream;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binomial coefficients, the values of Pascal's triangle without the exponential recursion
+ * of `RecFun.pascal`: `pascal(c, r)` is `choose(r, c)`.
+ *
+ * The rows up to `MAX_LONG_ROW`, whose values all fit in a `long`, are precomputed. Larger
+ * rows are computed as `BigInteger`s and kept in a cache of at most `cacheSize` rows which
+ * evicts the oldest row. Lookups in the cache do not lock, so instances can be shared by
+ * many threads.
+ */
+public class Binomial {
+    /** The last row of the triangle in which every value fits in a `long`. */
+    public static final int MAX_LONG_ROW = 66;
+
+    private static final long[][] LONG_ROWS = new long[MAX_LONG_ROW + 1][];
+
+    static {
+        LONG_ROWS[0] = new long[]{1};
+        for (int n = 1; n <= MAX_LONG_ROW; n++) {
+            LONG_ROWS[n] = new long[n + 1];
+            LONG_ROWS[n][0] = 1;
+            LONG_ROWS[n][n] = 1;
+            for (int k = 1; k < n; k++) LONG_ROWS[n][k] = LONG_ROWS[n - 1][k - 1] + LONG_ROWS[n - 1][k];
+        }
+    }
+
+    private final int cacheSize;
+    private final ConcurrentHashMap<Integer, BigInteger[]> rows = new ConcurrentHashMap<>();
+    private final Queue<Integer> cached = new ArrayDeque<>();
+
+    public Binomial(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Returns the number of ways to choose `k` out of `n` elements, or throws an
+     * `ArithmeticException` if that number does not fit in a `long`.
+     *
+     * Beyond the precomputed rows the value is computed without `BigInteger`s as
+     * `C(n, i + 1) = C(n, i) * (n - i) / (i + 1)`, dividing before multiplying so that no
+     * intermediate value is larger than the result. Since the values that fit in a `long`
+     * have a small `k` (or `n - k`) for such rows, this takes only a few steps.
+     */
+    public long choose(int n, int k) {
+        if (k < 0 || k > n) return 0;
+        if (n <= MAX_LONG_ROW) return LONG_ROWS[n][k];
+        k = Math.min(k, n - k);
+        long value = 1;
+        for (int i = 0; i < k; i++) {
+            long g = gcd(value, i + 1);
+            value = Math.multiplyExact(value / g, (n - i) / ((i + 1) / g));
+        }
+        return value;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Returns the number of ways to choose `k` out of `n` elements.
+     */
+    public BigInteger chooseExact(int n, int k) {
+        if (k < 0 || k > n) return BigInteger.ZERO;
+        if (n <= MAX_LONG_ROW) return BigInteger.valueOf(LONG_ROWS[n][k]);
+        return cachedRow(n)[k];
+    }
+
+    /**
+     * Returns row `n` of the triangle.
+     */
+    public Seq<BigInteger> row(int n) {
+        if (n <= MAX_LONG_ROW) return Array.ofAll(LONG_ROWS[n]).map(BigInteger::valueOf);
+        return Array.of(cachedRow(n));
+    }
+
+    /**
+     * Returns the rows of the triangle starting at row `n`. Each row is computed from the
+     * previous one by additions only, and only while the stream is traversed.
+     */
+    public Stream<Seq<BigInteger>> rows(int n) {
+        return Stream.iterate(row(n), Binomial::nextRow);
+    }
+
+    private static Seq<BigInteger> nextRow(Seq<BigInteger> row) {
+        return row.prepend(BigInteger.ZERO).zipWith(row.append(BigInteger.ZERO), BigInteger::add);
+    }
+
+    private BigInteger[] cachedRow(int n) {
+        BigInteger[] row = rows.get(n);
+        if (row != null) return row;
+        row = computeRow(n);
+        synchronized (cached) {
+            if (rows.putIfAbsent(n, row) == null) {
+                cached.add(n);
+                while (cached.size() > cacheSize) rows.remove(cached.remove());
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Computes row `n` with `C(n, k + 1) = C(n, k) * (n - k) / (k + 1)` and the symmetry
+     * of the triangle.
+     */
+    private static BigInteger[] computeRow(int n) {
+        BigInteger[] row = new BigInteger[n + 1];
+        row[0] = BigInteger.ONE;
+        for (int k = 0; k < n / 2; k++) {
+            row[k + 1] = row[k].multiply(BigInteger.valueOf(n - k)).divide(BigInteger.valueOf(k + 1));
+        }
+        for (int k = n / 2 + 1; k <= n; k++) row[k] = row[n - k];
+        return row;
+    }
+
+    /**
+     * Returns the binomial coefficients modulo the prime `p` for `n` up to `maxN`.
+     */
+    public static Modular modulo(int p, int maxN) {
+        return new Modular(p, maxN);
+    }
+
+    /**
+     * Binomial coefficients modulo a prime `p`, computed from precomputed tables of the
+     * factorials and their inverses. If the tables cover all residues (`maxN >= p - 1`),
+     * coefficients of any size are reduced with Lucas' theorem.
+     */
+    public static final class Modular {
+        private final int p;
+        private final int maxN;
+        private final long[] factorials;
+        private final long[] inverseFactorials;
+
+        Modular(int p, int maxN) {
+            if (!BigInteger.valueOf(p).isProbablePrime(32))
+                throw new IllegalArgumentException("modulus is not a prime: " + p);
+            this.p = p;
+            this.maxN = Math.min(maxN, p - 1);
+            factorials = new long[this.maxN + 1];
+            inverseFactorials = new long[this.maxN + 1];
+            factorials[0] = 1;
+            for (int i = 1; i <= this.maxN; i++) factorials[i] = factorials[i - 1] * i % p;
+            inverseFactorials[this.maxN] = BigInteger.valueOf(factorials[this.maxN])
+                    .modInverse(BigInteger.valueOf(p)).longValue();
+            for (int i = this.maxN; i > 0; i--) inverseFactorials[i - 1] = inverseFactorials[i] * i % p;
+        }
+
+        /**
+         * Returns `C(n, k) mod p`.
+         */
+        public long choose(long n, long k) {
+            if (k < 0 || k > n) return 0;
+            if (n <= maxN) return factorials[(int) n] * inverseFactorials[(int) k] % p * inverseFactorials[(int) (n - k)] % p;
+            if (maxN < p - 1) throw new IllegalArgumentException("n is larger than the tables: " + n);
+            return choose(n / p, k / p) * choose(n % p, k % p) % p;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package recfun;
+
+import io.vavr.collection.Iterator;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+
+/**
+ * The ways to give change for `money`, whose number `RecFun.countChange` computes, as the
+ * actual combinations of coins.
+ *
+ * A combination is the list of its coins, in the order of `coins`. Combinations are ordered
+ * by the number of times they use the first coin, then the second, and so on, and each one
+ * has a rank in that order. `counts[i][m]`, the number of ways to give change for `m` with
+ * the coins from index `i` on, tells how many combinations every choice of a count skips,
+ * so `unrank` jumps to the i-th combination without producing the ones before it, and
+ * `iterator` produces combinations on demand without keeping them.
+ */
+public class ChangeCombinations {
+    private final int[] coins;
+    private final int money;
+    private final long[][] counts;
+
+    public ChangeCombinations(int money, Seq<Integer> coins) {
+        if (coins.exists(coin -> coin <= 0)) throw new IllegalArgumentException("coins must be positive: " + coins);
+        if (coins.distinct().size() != coins.size()) throw new IllegalArgumentException("coins must be distinct: " + coins);
+        this.coins = coins.toJavaStream().mapToInt(coin -> coin).toArray();
+        this.money = Math.max(money, -1);
+        this.counts = new long[this.coins.length + 1][this.money + 1];
+        if (money < 0) return;
+        counts[this.coins.length][0] = 1;
+        for (int i = this.coins.length - 1; i >= 0; i--) {
+            for (int m = 0; m <= money; m++) {
+                long skip = m < this.coins[i] ? 0 : counts[i][m - this.coins[i]];
+                counts[i][m] = ChangeCounter.plus(counts[i + 1][m], skip);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of combinations, or throws an `ArithmeticException` if that number
+     * does not fit in a `long`.
+     */
+    public long size() {
+        if (money < 0) return 0;
+        if (counts[0][money] == ChangeCounter.OVERFLOW) throw new ArithmeticException("too many combinations");
+        return counts[0][money];
+    }
+
+    /**
+     * Returns all combinations, in order, computing each one only when it is needed.
+     */
+    public Iterator<Seq<Integer>> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * Returns the combinations starting at rank `from`.
+     */
+    public Iterator<Seq<Integer>> iterator(long from) {
+        return Iterator.range(from, size()).map(this::unrank);
+    }
+
+    /**
+     * Returns the combination of rank `rank`.
+     */
+    public Seq<Integer> unrank(long rank) {
+        if (rank < 0 || rank >= size()) throw new IndexOutOfBoundsException("unrank(" + rank + ")");
+        List<Integer> combination = List.empty();
+        int m = money;
+        for (int i = 0; i < coins.length; i++) {
+            int used = 0;
+            long skipped;
+            while ((skipped = counts[i + 1][m - used * coins[i]]) != ChangeCounter.OVERFLOW && rank >= skipped) {
+                rank -= skipped;
+                used++;
+            }
+            for (int j = 0; j < used; j++) combination = combination.prepend(coins[i]);
+            m -= used * coins[i];
+        }
+        return combination.reverse();
+    }
+
+    /**
+     * Returns the rank of `combination`, which has to consist of the coins of this instance
+     * and sum up to `money`.
+     */
+    public long rank(Seq<Integer> combination) {
+        if (combination.sum().intValue() != money) throw new IllegalArgumentException("not a combination for " + money);
+        long rank = 0;
+        int m = money;
+        for (int i = 0; i < coins.length; i++) {
+            int coin = coins[i];
+            int used = combination.count(x -> x == coin);
+            for (int j = 0; j < used; j++) rank += counts[i + 1][m - j * coin];
+            m -= used * coin;
+        }
+        if (m != 0) throw new IllegalArgumentException("not a combination of " + List.ofAll(coins) + ": " + combination);
+        return rank;
+    }
+}
@@ -0,0 +1,114 @@
+package recfun;
+
+import io.vavr.collection.Seq;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Counts the ways to give change with a fixed set of coins, like `RecFun.countChange`, by
+ * dynamic programming instead of exponential recursion.
+ *
+ * `ways[m]` is the number of ways to give change for `m`. Adding a coin `c` to the coins
+ * already counted turns it into `ways[m] + ways[m - c]` in order of increasing `m`. This
+ * is a prefix sum along every chain of amounts `r, r + c, r + 2c, ...`, so for large tables
+ * the chains are summed in parallel. Counts that do not fit in a `long` saturate to
+ * `OVERFLOW` and are reported by `count` as an `ArithmeticException`.
+ *
+ * The table is kept and only recomputed when a larger amount is asked for, so many queries
+ * against the same coins are answered by lookups. Instances are thread-safe.
+ */
+public class ChangeCounter {
+    static final long OVERFLOW = -1;
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final int[] coins;
+    private final int parallelThreshold;
+    private volatile long[] ways = {1};
+
+    public ChangeCounter(Seq<Integer> coins) {
+        this(coins, PARALLEL_THRESHOLD);
+    }
+
+    ChangeCounter(Seq<Integer> coins, int parallelThreshold) {
+        if (coins.exists(coin -> coin <= 0)) throw new IllegalArgumentException("coins must be positive: " + coins);
+        this.coins = coins.toJavaStream().mapToInt(coin -> coin).toArray();
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Returns the number of ways to give change for `money`.
+     */
+    public long count(int money) {
+        if (money < 0) return 0;
+        long count = table(money)[money];
+        if (count == OVERFLOW) throw new ArithmeticException("count does not fit in a long: " + money);
+        return count;
+    }
+
+    /**
+     * Returns the number of ways to give change for each of the `amounts`, computed from a
+     * single table up to the largest amount.
+     */
+    public Seq<Long> countAll(Seq<Integer> amounts) {
+        amounts.max().forEach(this::table);
+        return amounts.map(this::count);
+    }
+
+    /**
+     * Returns the number of ways to give change for `money`, without limit on its size.
+     */
+    public BigInteger countExact(int money) {
+        if (money < 0) return BigInteger.ZERO;
+        BigInteger[] table = new BigInteger[money + 1];
+        Arrays.fill(table, BigInteger.ZERO);
+        table[0] = BigInteger.ONE;
+        for (int coin : coins) {
+            for (int m = coin; m <= money; m++) table[m] = table[m].add(table[m - coin]);
+        }
+        return table[money];
+    }
+
+    private long[] table(int money) {
+        long[] table = ways;
+        if (money < table.length) return table;
+        synchronized (this) {
+            if (money >= ways.length) ways = compute(Math.max(money, 2 * (ways.length - 1)));
+            return ways;
+        }
+    }
+
+    private long[] compute(int max) {
+        long[] table = new long[max + 1];
+        table[0] = 1;
+        for (int coin : coins) {
+            if (max < parallelThreshold) {
+                for (int m = coin; m <= max; m++) table[m] = plus(table[m], table[m - coin]);
+            } else {
+                IntStream.range(0, Math.min(coin, max + 1)).parallel().forEach(r -> prefixSum(table, r, coin));
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Replaces the chain `ways[r], ways[r + step], ...` by its prefix sums.
+     */
+    private static void prefixSum(long[] ways, int r, int step) {
+        long[] chain = new long[(ways.length - 1 - r) / step + 1];
+        for (int i = 0; i < chain.length; i++) chain[i] = ways[r + i * step];
+        Arrays.parallelPrefix(chain, ChangeCounter::plus);
+        for (int i = 0; i < chain.length; i++) ways[r + i * step] = chain[i];
+    }
+
+    /**
+     * Adds two counts, saturating to `OVERFLOW`. Like the addition of the counts themselves
+     * this is associative, so it can be used in a parallel prefix sum.
+     */
+    static long plus(long a, long b) {
+        if (a == OVERFLOW || b == OVERFLOW) return OVERFLOW;
+        long sum = a + b;
+        return sum < 0 ? OVERFLOW : sum;
+    }
+}
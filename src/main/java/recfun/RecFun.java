@@ -12,14 +12,17 @@ public class RecFun {
 
     // ex2
     public static Boolean balance(CharSeq chars) {
-        return balanceRec(chars, 0) == 0;
+        return depth(chars) == 0;
     }
 
-    private static Integer balanceRec(CharSeq chars, Integer acc) {
-        if (chars.isEmpty() || acc < 0) return acc;
-        if (chars.head() == '(') return balanceRec(chars.tail(), acc + 1);
-        if (chars.head() == ')') return balanceRec(chars.tail(), acc -1);
-        return balanceRec(chars.tail(), acc);
+    // a loop over the indices, since every `tail()` of a CharSeq copies and recurses once per character
+    private static int depth(CharSeq chars) {
+        int depth = 0;
+        for (int i = 0; i < chars.length() && depth >= 0; i++) {
+            if (chars.charAt(i) == '(') depth++;
+            else if (chars.charAt(i) == ')') depth--;
+        }
+        return depth;
     }
 
     // ex3
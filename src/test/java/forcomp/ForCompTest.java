@@ -1,6 +1,7 @@
 package forcomp;
 
 import io.vavr.Tuple;
+import io.vavr.collection.CharSeq;
 import io.vavr.collection.HashSet;
 import io.vavr.collection.List;
 import io.vavr.collection.Seq;
@@ -8,6 +9,7 @@ import io.vavr.control.Option;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class ForCompTest {
     @Test
@@ -111,4 +113,24 @@ public class ForCompTest {
                 Anagrams.sentenceAnagrams(List.of("Linux", "rulez")).toSet()
         );
     }
+
+    @Test
+    public void testSignatures() {
+        assertSame(Anagrams.signature("ate"), Anagrams.signature("tea"));
+        assertEquals(Anagrams.wordOccurrences("Linux"), Anagrams.signature("Linux"));
+        assertEquals(Anagrams.wordOccurrences("xyzzy"), Anagrams.signature("xyzzy"));
+        assertEquals(
+                Anagrams.charSeqOccurrences(CharSeq.of("LinuxrulezYes")),
+                Anagrams.sentenceOccurrences(List.of("Linux", "rulez", "Yes"))
+        );
+    }
+
+    @Test
+    public void testSharedAnagrams() {
+        Seq<Seq<String>> anagrams = Anagrams.sentenceAnagrams(List.of("Linux", "rulez"));
+        assertEquals(anagrams.size(), anagrams.distinct().size());
+        Seq<String> first = anagrams.find(x -> x.equals(List.of("Lin", "Rex", "Zulu"))).get();
+        Seq<String> second = anagrams.find(x -> x.equals(List.of("nil", "Rex", "Zulu"))).get();
+        assertSame(first.tail(), second.tail());
+    }
 }
@@ -1,7 +1,10 @@
 package funsets;
 
+import metrics.InMemoryMetrics;
+import metrics.Instrumentation;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -65,4 +68,33 @@ public class FunSetsTest {
         assertTrue(set.contains(4));
         assertTrue(set.contains(9));
     }
+
+    @Test
+    public void testForallOnSmallStack() throws InterruptedException {
+        Set set = s1.union(s2).union(s3).map(x -> x * x);
+        boolean[] result = new boolean[2];
+        Thread thread = new Thread(null, () -> {
+            result[0] = set.forall(x -> x > 0);
+            result[1] = set.exists(x -> x == 9);
+        }, "small-stack", 1 << 16);
+        thread.start();
+        thread.join();
+        assertTrue(result[0]);
+        assertTrue(result[1]);
+    }
+
+    @Test
+    public void testQuantifierMetrics() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        Instrumentation.install(metrics);
+        try {
+            assertTrue(s1.forall(x -> true));
+            assertFalse(s1.union(s2).forall(x -> x == 1));
+            assertTrue(s1.exists(x -> x == 1));
+        } finally {
+            Instrumentation.install(null);
+        }
+        assertEquals(3, metrics.setQuantifications());
+        assertEquals(2001 + 1003 + 1002, metrics.setEvaluations());
+    }
 }
@@ -0,0 +1,78 @@
+package metrics;
+
+import forcomp.Anagrams;
+import io.vavr.collection.CharSeq;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import org.junit.After;
+import org.junit.Test;
+import patmat.AdaptiveHuffman;
+import patmat.CodeTree;
+import patmat.FlatCodeTree;
+import patmat.LengthLimitedCodeTree;
+import patmat.ParallelCodec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+    private InMemoryMetrics metrics = new InMemoryMetrics();
+
+    @After
+    public void uninstall() {
+        Instrumentation.install(null);
+    }
+
+    @Test
+    public void testDefault() {
+        assertSame(Metrics.NOOP, Instrumentation.metrics());
+        assertEquals(false, Metrics.NOOP.enabled());
+    }
+
+    @Test
+    public void testAnagrams() {
+        Instrumentation.install(metrics);
+        Seq<Seq<String>> anagrams = Anagrams.sentenceAnagrams(List.of("Linux", "rulez"));
+        assertEquals(1, metrics.sentenceAnagramsCalls());
+        assertEquals(anagrams.size(), metrics.sentenceAnagramsResults());
+        assertTrue(metrics.sentenceAnagramsNanos() > 0);
+        assertTrue(metrics.anagramNodes() > 1);
+        assertTrue(metrics.anagramSubsetsTried() > metrics.anagramDictionaryHits());
+        assertTrue(metrics.anagramDictionaryHits() > 0);
+    }
+
+    @Test
+    public void testHuffman() {
+        Instrumentation.install(metrics);
+        CharSeq text = CharSeq.of("huffmanestcool");
+        CodeTree tree = CodeTree.createCodeTree(text);
+        Seq<Integer> bits = tree.encode().apply(text);
+        tree.quickEncode().apply(text);
+        tree.decode(bits);
+        assertEquals(1, metrics.treeBuilds());
+        assertEquals(2 * text.size(), metrics.encodedSymbols());
+        assertEquals(2 * bits.size(), metrics.encodedBits());
+        assertEquals(text.size(), metrics.decodedSymbols());
+        assertEquals(bits.size(), metrics.decodedBits());
+        assertTrue(metrics.decodedSymbolsPerSecond() > 0);
+        assertTrue(metrics.encodedBytesPerSecond() > 0);
+    }
+
+    @Test
+    public void testOtherCoders() {
+        Instrumentation.install(metrics);
+        CharSeq text = CharSeq.of("huffmanestcool");
+        CodeTree limited = LengthLimitedCodeTree.create(text, 4);
+        assertEquals(1, metrics.treeBuilds());
+
+        Seq<Integer> bits = ParallelCodec.encode(limited, text, 4);
+        ParallelCodec.decode(limited, ParallelCodec.encodeBlocks(limited, text, 4));
+        FlatCodeTree.of(limited).decode(FlatCodeTree.of(limited).encode(text));
+        Seq<Integer> adaptiveBits = AdaptiveHuffman.encode(text);
+        AdaptiveHuffman.decode(adaptiveBits);
+        assertEquals(4 * text.size(), metrics.encodedSymbols());
+        assertEquals(3 * text.size(), metrics.decodedSymbols());
+        assertEquals(2 * bits.size() + adaptiveBits.size(), metrics.decodedBits());
+    }
+}
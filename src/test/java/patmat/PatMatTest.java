@@ -1,15 +1,35 @@
 package patmat;
 
 import io.vavr.Tuple;
+import io.vavr.Tuple2;
 import io.vavr.collection.CharSeq;
 import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Vector;
+import io.vavr.control.Option;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static io.vavr.API.*;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static patmat.CodeTree.Fork;
 import static patmat.CodeTree.Leaf;
+import static patmat.CodeTreePatterns.$Fork;
+import static patmat.CodeTreePatterns.$Leaf;
 
 public class PatMatTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private CodeTree t1 = new Fork(new Leaf('a', 2), new Leaf('b', 3), List.of('a', 'b'), 5);
     private CodeTree t2 = new Fork(new Fork(new Leaf('a', 2), new Leaf('b', 3), List.of('a', 'b'), 5), new Leaf('d', 4), List.of('a', 'b', 'd'), 9);
     
@@ -41,6 +61,12 @@ public class PatMatTest {
     @Test
     public void testDecode() {
         assertEquals(CharSeq.of("ab"), t1.decode(t1.encode().apply(CharSeq.of("ab"))));
+        try {
+            t2.decode(List.of(0, 2));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
         //assertEquals(CharSeq.of("huffmanestcool"), CodeTree.decodedSecret());
     }
 
@@ -56,4 +82,202 @@ public class PatMatTest {
         );
         assertEquals(CodeTree.secret, CodeTree.frenchCode.quickEncode().apply(CharSeq.of("huffmanestcool")));
     }
+
+    @Test
+    public void testParallelEncode() {
+        CharSeq text = CharSeq.of("huffmanestcool").repeat(100);
+        assertEquals(CodeTree.frenchCode.encode().apply(text), CodeTree.frenchCode.parallelEncode(5).apply(text));
+        assertEquals(CodeTree.secret, CodeTree.frenchCode.parallelEncode(3).apply(CharSeq.of("huffmanestcool")));
+        assertEquals(CodeTree.secret, CodeTree.frenchCode.parallelEncode().apply(CharSeq.of("huffmanestcool")));
+        assertEquals(List.empty(), CodeTree.frenchCode.parallelEncode(3).apply(CharSeq.empty()));
+        try {
+            CodeTree.frenchCode.parallelEncode(3).apply(CharSeq.of("huffman!"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBlockDecode() {
+        CharSeq text = CharSeq.of("huffmanestcool").repeat(10);
+        BlockEncoded encoded = ParallelCodec.encodeBlocks(CodeTree.frenchCode, text, 4);
+        assertEquals(CodeTree.frenchCode.encode().apply(text), encoded.bits);
+        assertEquals(35, encoded.index.size());
+        BlockEncoded again = ParallelCodec.encodeBlocks(CodeTree.frenchCode, text, 4);
+        assertEquals(encoded, again);
+        assertEquals(encoded.hashCode(), again.hashCode());
+        BlockEncoded whole = ParallelCodec.encodeBlocks(CodeTree.frenchCode, text);
+        assertEquals(1, whole.index.size());
+        assertEquals(encoded.bits, whole.bits);
+        assertEquals(ParallelCodec.encode(CodeTree.frenchCode, text), whole.bits);
+        assertEquals(text, CharSeq.ofAll(ParallelCodec.decode(CodeTree.frenchCode, encoded)));
+        assertEquals(text.subSequence(21, 58), CharSeq.ofAll(ParallelCodec.decodeRange(CodeTree.frenchCode, encoded, 21, 58)));
+        assertEquals(Character.valueOf('m'), ParallelCodec.decodeAt(CodeTree.frenchCode, encoded, 18));
+
+        BlockEncoded single = ParallelCodec.encodeBlocks(new Leaf('a', 3), CharSeq.of("aaa"), 2);
+        assertEquals(CharSeq.of("aaa"), CharSeq.ofAll(ParallelCodec.decode(new Leaf('a', 3), single)));
+    }
+
+    @Test
+    public void testAdaptiveHuffman() {
+        CharSeq text = CharSeq.of("huffman est cool, adaptive huffman est aussi cool");
+        Seq<Integer> bits = AdaptiveHuffman.encode(text);
+        assertEquals(text, CharSeq.ofAll(AdaptiveHuffman.decode(bits)));
+        assertEquals(List.empty(), AdaptiveHuffman.encode(CharSeq.empty()));
+        CharSeq wide = CharSeq.of("\u20ac 5, \u00e9t\u00e9 \u20ac\u20ac, \uffff\u0000");
+        assertEquals(wide, CharSeq.ofAll(AdaptiveHuffman.decode(AdaptiveHuffman.encode(wide))));
+        try {
+            AdaptiveHuffman.decode(List.of(0, 1, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        AdaptiveHuffman model = new AdaptiveHuffman();
+        assertEquals(Option.none(), model.toCodeTree());
+        text.forEach(model::encode);
+        CodeTree tree = model.toCodeTree().get();
+        assertEquals(Integer.valueOf(text.length()), tree.weight());
+        assertEquals(text.distinct().toSet(), tree.characters().toSet());
+        assertEquals(text, tree.decode(tree.encode().apply(text)));
+    }
+
+    @Test
+    public void testLengthLimitedCodeTree() {
+        Seq<Tuple2<Character, Integer>> freqs = List.of(
+                Tuple.of('a', 1), Tuple.of('b', 1), Tuple.of('c', 2), Tuple.of('d', 4), Tuple.of('e', 8), Tuple.of('f', 16));
+        assertEquals(
+                List.of(Tuple.of('f', 1), Tuple.of('e', 2), Tuple.of('d', 3), Tuple.of('c', 4), Tuple.of('a', 5), Tuple.of('b', 5)),
+                LengthLimitedCodeTree.codeLengths(freqs, 8)
+        );
+        assertEquals(
+                List.of(Tuple.of('f', 1), Tuple.of('e', 2), Tuple.of('a', 4), Tuple.of('b', 4), Tuple.of('c', 4), Tuple.of('d', 4)),
+                LengthLimitedCodeTree.codeLengths(freqs, 4)
+        );
+
+        CodeTree limited = LengthLimitedCodeTree.fromFrequencies(freqs, 4);
+        assertEquals(Integer.valueOf(32), limited.weight());
+        assertEquals(List.of(0), limited.quickEncode().apply(CharSeq.of('f')));
+        assertEquals(List.of(1, 1, 1, 1), limited.quickEncode().apply(CharSeq.of('d')));
+
+        FlatCodeTree flat = FlatCodeTree.of(CodeTree.frenchCode);
+        Seq<Tuple2<Character, Integer>> frenchFreqs = List.range(0, flat.size())
+                .filter(flat::isLeaf)
+                .map(node -> Tuple.of(flat.character(node), flat.weight(node)));
+        CodeTree unbounded = CodeTree.createCodeTreeFromFrequencies(frenchFreqs);
+        CodeTree french = LengthLimitedCodeTree.fromFrequencies(frenchFreqs, 5);
+        assertEquals(true, maxCodeLength(unbounded) > 5);
+        assertEquals(5, maxCodeLength(french));
+        assertEquals(true, cost(french, frenchFreqs) >= cost(unbounded, frenchFreqs));
+        CharSeq text = CharSeq.of("huffmanestcool");
+        assertEquals(text, french.decode(french.encode().apply(text)));
+    }
+
+    private static int maxCodeLength(CodeTree tree) {
+        return tree.convert().map(x -> x._2.size()).max().get();
+    }
+
+    private static long cost(CodeTree tree, Seq<Tuple2<Character, Integer>> freqs) {
+        Map<Character, Seq<Integer>> codes = tree.convert().toMap(x -> x);
+        return freqs.map(x -> (long) x._2 * codes.apply(x._1).size()).sum().longValue();
+    }
+
+    @Test
+    public void testHistogram() throws IOException {
+        String text = "huffman est tr\u00e8s cool, \u20ac\u20ac\u20ac plus cool";
+        Path file = folder.newFile().toPath();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+
+        long[] expected = new long[1 << 16];
+        text.chars().forEach(c -> expected[c]++);
+        assertArrayEquals(expected, Histogram.countChars(file));
+        assertArrayEquals(expected, Histogram.count(file, true, 3));
+        assertEquals(
+                CodeTree.times(CharSeq.of(text)).toSet(),
+                Histogram.frequencies(Histogram.count(file, true, 5)).toSet()
+        );
+
+        long[] bytes = new long[256];
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) bytes[b & 0xFF]++;
+        assertArrayEquals(bytes, Histogram.count(file, false, 7));
+
+        CodeTree tree = CodeTree.createCodeTreeFromFrequencies(Histogram.frequencies(Histogram.countChars(file)));
+        assertEquals(Integer.valueOf(text.length()), tree.weight());
+        assertArrayEquals(new long[256], Histogram.countBytes(folder.newFile().toPath()));
+
+        long[] large = new long[256];
+        large['a'] = 1500000000L;
+        large['b'] = 1400000000L;
+        large['c'] = 1;
+        large['d'] = 5000000000L;
+        Seq<Tuple2<Character, Integer>> scaled = Histogram.frequencies(large);
+        assertEquals(List.of('d', 'a', 'b', 'c'), scaled.sortBy(x -> -x._2).map(x -> x._1));
+        assertEquals(Integer.valueOf(1), scaled.find(x -> x._1 == 'c').get()._2);
+        CodeTree largeTree = CodeTree.createCodeTreeFromFrequencies(scaled);
+        assertEquals(true, largeTree.weight() > 0);
+        assertEquals(1, largeTree.encode().apply(List.of('d')).size());
+    }
+
+    @Test
+    public void testFlatCodeTree() {
+        FlatCodeTree flat = FlatCodeTree.of(CodeTree.frenchCode);
+        assertEquals(51, flat.size());
+        assertEquals(CodeTree.frenchCode, flat.toCodeTree());
+        assertEquals(CodeTree.frenchCode.characters(), flat.characters(0));
+        assertEquals(CharSeq.of("huffmanestcool"), flat.decode(CodeTree.secret));
+        assertEquals(CodeTree.secret, flat.encode(CharSeq.of("huffmanestcool")));
+
+        FlatCodeTree small = FlatCodeTree.of(t2);
+        assertEquals(t2, small.toCodeTree());
+        assertEquals(9, small.weight(0));
+        assertEquals(CharSeq.of('a', 'b'), small.characters(small.left(0)));
+        assertEquals('d', small.character(small.right(0)));
+        assertEquals(true, small.contains(small.left(0), 'b'));
+        assertEquals(false, small.contains(small.left(0), 'd'));
+        try {
+            flat.encode(CharSeq.of('!'));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            flat.decode(List.of(0, 2, 1));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testVisitor() {
+        CodeTree.Visitor<Void, String> describe = new CodeTree.Visitor<Void, String>() {
+            public String visitFork(Fork fork, Void arg) {
+                return "fork " + fork.characters.mkString();
+            }
+
+            public String visitLeaf(Leaf leaf, Void arg) {
+                return "leaf " + leaf.character;
+            }
+        };
+        assertEquals("fork abd", t2.accept(describe, null));
+        assertEquals("leaf a", new Leaf('a', 2).accept(describe, null));
+        assertEquals(
+                t2.accept(describe, null),
+                Match(t2).of(
+                        Case($Fork($(), $(), $(), $()), (l, r, characters, w) -> "fork " + characters.mkString()),
+                        Case($Leaf($(), $()), (character, w) -> "leaf " + character)
+                )
+        );
+    }
+
+    @Test
+    public void testLongInputs() {
+        List<Integer> bits = List.ofAll(CodeTree.secret.toStream().cycle().take(CodeTree.secret.size() * 5000));
+        Seq<Character> decoded = CodeTree.frenchCode.decodeRec(CodeTree.frenchCode, bits, Vector.empty());
+        assertEquals(CharSeq.of("huffmanestcool").repeat(5000), CharSeq.ofAll(decoded));
+
+        Seq<CodeTree> leaves = List.range(0, 3000).map(i -> new Leaf((char) i.intValue(), 1));
+        assertEquals(Integer.valueOf(3000), CodeTree.until(CodeTree::singleton, CodeTree::combine).apply(leaves).single().weight());
+    }
 }
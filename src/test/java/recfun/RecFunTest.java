@@ -2,13 +2,26 @@ package recfun;
 
 import io.vavr.collection.CharSeq;
 import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RecFunTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testPascal() {
         assertEquals(Integer.valueOf(1), RecFun.pascal(0, 2));
@@ -29,6 +42,10 @@ public class RecFunTest {
         assertTrue(RecFun.balance(CharSeq.of("()")));
         assertFalse(RecFun.balance(CharSeq.of(")(")));
         assertFalse(RecFun.balance(CharSeq.of(")()(")));
+
+        CharSeq deep = CharSeq.of('(').repeat(200000).appendAll(CharSeq.of(')').repeat(200000));
+        assertTrue(RecFun.balance(deep));
+        assertFalse(RecFun.balance(deep.append('(')));
     }
 
     @Test
@@ -38,4 +55,117 @@ public class RecFunTest {
         assertEquals(Integer.valueOf(0), RecFun.countChange(301, List.of(5,10,20,50,100,200,500)));
         assertEquals(Integer.valueOf(1022), RecFun.countChange(300, List.of(500,5,50,100,20,200,10)));
     }
+
+    @Test
+    public void testBinomial() {
+        Binomial binomial = new Binomial(4);
+        for (int r = 0; r < 12; r++)
+            for (int c = 0; c <= r; c++)
+                assertEquals(RecFun.pascal(c, r).longValue(), binomial.choose(r, c));
+        assertEquals(7219428434016265740L, binomial.choose(66, 33));
+        assertEquals(new BigInteger("14226520737620288370"), binomial.chooseExact(67, 33));
+        assertEquals(4950L, binomial.choose(100, 2));
+        assertEquals(binomial.chooseExact(1000, 6).longValueExact(), binomial.choose(1000, 994));
+        assertEquals(binomial.chooseExact(70, 15).longValueExact(), binomial.choose(70, 55));
+        assertEquals(0L, binomial.choose(5, 6));
+        try {
+            binomial.choose(67, 33);
+            fail();
+        } catch (ArithmeticException e) {
+            // expected
+        }
+
+        assertEquals(List.of(1, 4, 6, 4, 1).map(BigInteger::valueOf), binomial.row(4));
+        assertEquals(binomial.row(80), binomial.rows(60).get(20));
+        assertEquals(binomial.chooseExact(200, 100), binomial.row(200).get(100));
+
+        Binomial.Modular modular = Binomial.modulo(1000000007, 100000);
+        assertEquals(binomial.chooseExact(1000, 500).mod(BigInteger.valueOf(1000000007)).longValue(), modular.choose(1000, 500));
+        Binomial.Modular lucas = Binomial.modulo(13, 12);
+        assertEquals(binomial.chooseExact(1000, 377).mod(BigInteger.valueOf(13)).longValue(), lucas.choose(1000, 377));
+    }
+
+    @Test
+    public void testChangeCounter() {
+        ChangeCounter counter = new ChangeCounter(List.of(5, 10, 20, 50, 100, 200, 500));
+        assertEquals(1022L, counter.count(300));
+        assertEquals(0L, counter.count(301));
+        assertEquals(List.of(1022L, 0L, 1L, 1L), counter.countAll(List.of(300, 301, 0, 5)));
+        for (int money = 0; money <= 60; money++)
+            assertEquals(RecFun.countChange(money, List.of(1, 2, 5)).longValue(), new ChangeCounter(List.of(1, 2, 5)).count(money));
+
+        ChangeCounter sequential = new ChangeCounter(List.of(1, 2, 3, 7), Integer.MAX_VALUE);
+        ChangeCounter parallel = new ChangeCounter(List.of(1, 2, 3, 7), 16);
+        assertEquals(sequential.countAll(List.range(0, 500)), parallel.countAll(List.range(0, 500)));
+        assertEquals(BigInteger.valueOf(sequential.count(499)), parallel.countExact(499));
+
+        ChangeCounter pennies = new ChangeCounter(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+        assertTrue(pennies.countExact(100000).bitLength() > 63);
+        try {
+            pennies.count(100000);
+            fail();
+        } catch (ArithmeticException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testChangeCombinations() {
+        ChangeCombinations small = new ChangeCombinations(4, List.of(1, 2));
+        assertEquals(List.of(List.of(2, 2), List.of(1, 1, 2), List.of(1, 1, 1, 1)), small.iterator().toList());
+
+        ChangeCombinations combinations = new ChangeCombinations(300, List.of(5, 10, 20, 50, 100, 200, 500));
+        assertEquals(1022L, combinations.size());
+        List<Seq<Integer>> all = combinations.iterator().toList();
+        assertEquals(1022, all.distinct().size());
+        assertTrue(all.forAll(combination -> combination.sum().intValue() == 300));
+        for (int rank = 0; rank < all.size(); rank += 37) {
+            assertEquals(all.get(rank), combinations.unrank(rank));
+            assertEquals(rank, combinations.rank(all.get(rank)));
+        }
+        assertEquals(all.drop(1000), combinations.iterator(1000).toList());
+        assertEquals(List.of(List.of(100, 200), List.of(100, 100, 100)),
+                combinations.iterator().filter(combination -> combination.size() <= 3).take(2).toList());
+
+        ChangeCombinations large = new ChangeCombinations(10000, List.of(1, 2, 5, 10, 20, 50, 100));
+        long last = large.size() - 1;
+        assertEquals(List.fill(100, () -> 100), large.unrank(0));
+        assertEquals(last, large.rank(large.unrank(last)));
+        assertEquals(0, new ChangeCombinations(301, List.of(5, 10)).size());
+        try {
+            new ChangeCombinations(100000, List.of(1, 2, 5, 10, 20, 50, 100)).size();
+            fail();
+        } catch (ArithmeticException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testParallelBalance() throws IOException {
+        List<String> texts = List.of(
+                "(if (zero? x) max (/ 1 x))",
+                "I told him (that it's not (yet) done).\n(But he wasn't listening)",
+                ":-)", "())(", "", "(", ")", "()", ")(", ")()(");
+        for (String text : texts) {
+            boolean expected = RecFun.balance(CharSeq.of(text));
+            assertEquals(expected, Balance.balance(CharSeq.of(text)));
+            assertEquals(expected, Balance.balance(CharSeq.of(text), 1));
+            assertEquals(expected, Balance.balance(CharSeq.of(text), 3));
+            Path file = folder.newFile().toPath();
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            assertEquals(expected, Balance.balance(file, 2));
+        }
+
+        assertEquals(new Balance(1, 2), Balance.of(")(()(", 0, 5));
+        assertEquals(new Balance(1, 0), Balance.EMPTY.append("(()").append("))").append("()"));
+        assertTrue(Balance.EMPTY.append("((").append("x)").append(")").isBalanced());
+        assertEquals(
+                Balance.of("(()))(()", 0, 8),
+                Balance.of("(()", 0, 3).combine(Balance.of("))(", 0, 3)).combine(Balance.of("()", 0, 2))
+        );
+
+        CharSeq deep = CharSeq.of('(').repeat(200000).appendAll(CharSeq.of(')').repeat(200000));
+        assertTrue(Balance.balance(deep));
+        assertFalse(Balance.balance(deep.append(')')));
+    }
 }